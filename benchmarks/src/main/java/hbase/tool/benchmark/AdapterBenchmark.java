@@ -0,0 +1,99 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseAdapter;
+import org.apache.hadoop.hbase.client.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * HbaseAdapter热路径(get/put/multiGet/scan)的客户端开销
+ * 后端是InMemoryHbase，测到的是连接池、表状态检查、对象构造等客户端部分的耗时和分配
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class AdapterBenchmark {
+    private static final String FAMILY = "cf";
+
+    @Param({"100", "4096"})
+    public int valueSize;
+
+    @Param({"20"})
+    public int batchSize;
+
+    private HbaseAdapter adapter;
+    private String[] rowkeys;
+    private String value;
+
+    @Setup
+    public void setUp() {
+        adapter = HbaseAdapter.getInstance();
+        if (0 != adapter.init(BenchmarkConfigs.newConfig(32, new InMemoryHbase(valueSize, batchSize)))) {
+            throw new IllegalStateException("init adapter failed");
+        }
+        rowkeys = new String[1024];
+        for (int i = 0; i < rowkeys.length; ++i) {
+            rowkeys[i] = "row-" + i;
+        }
+        StringBuilder builder = new StringBuilder(valueSize);
+        for (int i = 0; i < valueSize; ++i) {
+            builder.append('v');
+        }
+        value = builder.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        adapter.close();
+    }
+
+    private String randomRowkey() {
+        return rowkeys[ThreadLocalRandom.current().nextInt(rowkeys.length)];
+    }
+
+    @Benchmark
+    public Result get() {
+        return adapter.getRowByRowKey(BenchmarkConfigs.TABLE_NAME, randomRowkey());
+    }
+
+    @Benchmark
+    public int put() {
+        return adapter.putRowByRowKey(BenchmarkConfigs.TABLE_NAME, randomRowkey(), FAMILY, "c", value);
+    }
+
+    @Benchmark
+    public List<Result> multiGet() {
+        String[] keys = new String[batchSize];
+        for (int i = 0; i < batchSize; ++i) {
+            keys[i] = randomRowkey();
+        }
+        return adapter.multiGetRowByRowKey(BenchmarkConfigs.TABLE_NAME, keys);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        String begin = randomRowkey();
+        blackhole.consume(adapter.scanRowByRange(BenchmarkConfigs.TABLE_NAME, begin, begin + "~"));
+    }
+}
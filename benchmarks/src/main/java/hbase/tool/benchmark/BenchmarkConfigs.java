@@ -0,0 +1,21 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseConfig;
+import org.apache.hadoop.conf.Configuration;
+
+/*
+ * 压测用的配置，连接由InMemoryHbase创建
+ * 健康检查间隔设得足够长，避免压测期间触发
+ */
+
+final class BenchmarkConfigs {
+    static final String TABLE_NAME = "benchmark";
+
+    private BenchmarkConfigs() { }
+
+    static HbaseConfig newConfig(int poolSize, InMemoryHbase hbase) {
+        HbaseConfig config = new HbaseConfig("in-memory", poolSize, 1000, 3600, TABLE_NAME, new Configuration());
+        config.setConnectionFactory(hbase);
+        return config;
+    }
+}
@@ -0,0 +1,74 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseConfig;
+import hbase.tool.HbaseConnectionPool;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/*
+ * 独占模式(每个池化连接一个hbase Connection)与共享模式(hbase.connection.shared.count)的启动时间、堆占用和线程数对比
+ * 每种模式单独启动一个JVM运行，避免类加载和残留线程影响另一种模式：
+ *   java -cp benchmarks.jar hbase.tool.benchmark.ConnectionModeComparison dedicated 30 0 [hbase-site.xml]
+ *   java -cp benchmarks.jar hbase.tool.benchmark.ConnectionModeComparison shared 30 2 [hbase-site.xml]
+ * 不指定hbase-site.xml时连接由InMemoryHbase创建，只能测到连接池自身的开销，
+ * Connection的zookeeper会话、rpc客户端和线程池的开销需要指定真实集群的hbase-site.xml才能测到
+ */
+
+public class ConnectionModeComparison {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: ConnectionModeComparison <dedicated|shared> <poolSize> <sharedCount> [hbase-site.xml]");
+            System.exit(1);
+        }
+        String mode = args[0];
+        int poolSize = Integer.parseInt(args[1]);
+        int sharedCount = "shared".equals(mode) ? Integer.parseInt(args[2]) : 0;
+        HbaseConfig config = args.length > 3 ? clusterConfig(poolSize, args[3])
+                : BenchmarkConfigs.newConfig(poolSize, new InMemoryHbase(16, 0));
+        config.setSharedConnectionCount(sharedCount);
+        // init等全部连接创建完成后才返回，启动时间包含所有连接
+        config.setReadyPoolSize(poolSize);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long heapBefore = usedHeapAfterGc(memory);
+        int threadsBefore = threads.getThreadCount();
+
+        HbaseConnectionPool pool = new HbaseConnectionPool();
+        long startNanos = System.nanoTime();
+        if (0 != pool.init(config)) {
+            throw new IllegalStateException("init pool failed");
+        }
+        long initMillis = (System.nanoTime() - startNanos) / 1000000;
+        // 等后台创建的健康检查连接等完成
+        Thread.sleep(2000);
+
+        long heapAfter = usedHeapAfterGc(memory);
+        int threadsAfter = threads.getThreadCount();
+        System.out.println("mode:" + mode + " poolSize:" + poolSize + " sharedCount:" + sharedCount
+                + " init:" + initMillis + "ms"
+                + " heap:" + (heapAfter - heapBefore) / 1024 + "KB"
+                + " threads:" + (threadsAfter - threadsBefore));
+        pool.close();
+    }
+
+    private static HbaseConfig clusterConfig(int poolSize, String hbaseSiteFile) throws IOException {
+        Configuration configuration = HBaseConfiguration.create();
+        configuration.addResource(new FileInputStream(hbaseSiteFile));
+        return new HbaseConfig(hbaseSiteFile, poolSize, 1000, 3600, BenchmarkConfigs.TABLE_NAME, configuration);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,178 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseConnectionFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/*
+ * 进程内的hbase替身，不访问网络
+ * Connection/Table/Admin/ResultScanner都用动态代理实现，只实现压测用到的方法：
+ * get返回固定的一行，put直接丢弃，scan返回scanRows行，表始终存在且已启用
+ */
+
+public class InMemoryHbase implements HbaseConnectionFactory {
+    public static final byte[] FAMILY = Bytes.toBytes("cf");
+    public static final byte[] QUALIFIER = Bytes.toBytes("c");
+
+    private final Result row;
+    private final int scanRows;
+
+    public InMemoryHbase(int valueSize, int scanRows) {
+        byte[] value = new byte[valueSize];
+        this.row = Result.create(new Cell[] {new KeyValue(Bytes.toBytes("row"), FAMILY, QUALIFIER, value)});
+        this.scanRows = scanRows;
+    }
+
+    public Connection createConnection(Configuration configuration) {
+        return proxy(Connection.class, new ConnectionHandler(configuration));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InMemoryHbase.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /*
+     * 未实现的方法返回对应类型的默认值
+     */
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class || type == long.class || type == short.class || type == byte.class) {
+            return type == long.class ? (Object) 0L : (Object) 0;
+        }
+        return null;
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        return proxy.getClass().getName();
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Configuration configuration;
+        private volatile boolean closed = false;
+
+        ConnectionHandler(Configuration configuration) {
+            this.configuration = configuration;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            } else if ("getTable".equals(name)) {
+                return proxy(Table.class, new TableHandler());
+            } else if ("getAdmin".equals(name)) {
+                return proxy(Admin.class, new AdminHandler());
+            } else if ("getConfiguration".equals(name)) {
+                return configuration;
+            } else if ("isClosed".equals(name)) {
+                return closed;
+            } else if ("close".equals(name)) {
+                closed = true;
+                return null;
+            }
+            return defaultValue(method);
+        }
+    }
+
+    private class TableHandler implements InvocationHandler {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            } else if ("get".equals(name)) {
+                if (args[0] instanceof Get) {
+                    return row;
+                }
+                Result[] results = new Result[((List<?>) args[0]).size()];
+                for (int i = 0; i < results.length; ++i) {
+                    results[i] = row;
+                }
+                return results;
+            } else if ("getScanner".equals(name)) {
+                return proxy(ResultScanner.class, new ScannerHandler());
+            } else if ("exists".equals(name)) {
+                return true;
+            }
+            return defaultValue(method);
+        }
+    }
+
+    private static class AdminHandler implements InvocationHandler {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            } else if ("isTableEnabled".equals(name) || "tableExists".equals(name)) {
+                return true;
+            }
+            return defaultValue(method);
+        }
+    }
+
+    private class ScannerHandler implements InvocationHandler {
+        private int remaining = scanRows;
+
+        private Result next() {
+            if (remaining <= 0) {
+                return null;
+            }
+            --remaining;
+            return row;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            } else if ("next".equals(name) && (null == args || 0 == args.length)) {
+                return next();
+            } else if ("iterator".equals(name)) {
+                return new Iterator<Result>() {
+                    private Result nextResult = ScannerHandler.this.next();
+
+                    public boolean hasNext() {
+                        return null != nextResult;
+                    }
+
+                    public Result next() {
+                        if (null == nextResult) {
+                            throw new NoSuchElementException();
+                        }
+                        Result result = nextResult;
+                        nextResult = ScannerHandler.this.next();
+                        return result;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+            return defaultValue(method);
+        }
+    }
+}
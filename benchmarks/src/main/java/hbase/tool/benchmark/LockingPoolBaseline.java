@@ -0,0 +1,85 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseConfig;
+import hbase.tool.HbaseConnection;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * 旧版连接池的借还算法(ReentrantLock+两个LinkedList)，只作为压测对照
+ * 与原实现的区别：等待超时后返回null，原实现在超时后会继续循环等待
+ */
+
+public class LockingPoolBaseline {
+    private final List<HbaseConnection> busyConnection = new LinkedList<HbaseConnection>();
+    private final List<HbaseConnection> idleConnection = new LinkedList<HbaseConnection>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final long waitTimeMillis;
+
+    public LockingPoolBaseline(HbaseConfig hbaseConfig) {
+        this.waitTimeMillis = hbaseConfig.getWaitTimeMillis();
+        for (int i = 0; i < hbaseConfig.getPoolSize(); ++i) {
+            HbaseConnection connection = new HbaseConnection();
+            connection.initConnection(hbaseConfig);
+            idleConnection.add(connection);
+        }
+    }
+
+    public HbaseConnection getConnection() {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(waitTimeMillis);
+            while (idleConnection.isEmpty() && nanos > 0) {
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (idleConnection.isEmpty()) {
+                return null;
+            }
+            HbaseConnection connection = idleConnection.get(0);
+            idleConnection.remove(connection);
+            busyConnection.add(connection);
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    public synchronized void releaseConnection(HbaseConnection connection) {
+        lock.lock();
+        try {
+            idleConnection.add(connection);
+            busyConnection.remove(connection);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            for (HbaseConnection connection : idleConnection) {
+                connection.releaseConnection();
+            }
+            for (HbaseConnection connection : busyConnection) {
+                connection.releaseConnection();
+            }
+            idleConnection.clear();
+            busyConnection.clear();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
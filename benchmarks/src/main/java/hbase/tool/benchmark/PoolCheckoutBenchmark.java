@@ -0,0 +1,107 @@
+package hbase.tool.benchmark;
+
+import hbase.tool.HbaseConfig;
+import hbase.tool.HbaseConnection;
+import hbase.tool.HbaseConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 连接借还的吞吐和延迟分布，对比当前无锁连接池与旧版加锁实现
+ * 线程数分别为8/32/128，poolSize小于线程数时可以看到等待下的表现
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolCheckoutBenchmark {
+    @Param({"16", "64"})
+    public int poolSize;
+
+    private HbaseConnectionPool pool;
+    private LockingPoolBaseline baseline;
+
+    @Setup
+    public void setUp() {
+        HbaseConfig config = BenchmarkConfigs.newConfig(poolSize, new InMemoryHbase(16, 0));
+        pool = new HbaseConnectionPool();
+        if (0 != pool.init(config)) {
+            throw new IllegalStateException("init pool failed");
+        }
+        baseline = new LockingPoolBaseline(config);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        baseline.close();
+    }
+
+    private HbaseConnection checkoutPool() {
+        HbaseConnection connection = pool.getConnection();
+        if (null != connection) {
+            pool.releaseConnection(connection);
+        }
+        return connection;
+    }
+
+    private HbaseConnection checkoutBaseline() {
+        HbaseConnection connection = baseline.getConnection();
+        if (null != connection) {
+            baseline.releaseConnection(connection);
+        }
+        return connection;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public HbaseConnection pool8() {
+        return checkoutPool();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public HbaseConnection pool32() {
+        return checkoutPool();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public HbaseConnection pool128() {
+        return checkoutPool();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public HbaseConnection baseline8() {
+        return checkoutBaseline();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public HbaseConnection baseline32() {
+        return checkoutBaseline();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public HbaseConnection baseline128() {
+        return checkoutBaseline();
+    }
+}
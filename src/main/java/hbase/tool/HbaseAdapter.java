@@ -3,19 +3,25 @@ package hbase.tool;
 import org.apache.hadoop.conf.Configuration;
 
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.MasterNotRunningException;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.ZooKeeperConnectionException;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Consistency;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -24,9 +30,17 @@ import java.lang.String;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Created by jiandaohong on 2015/8/10.
@@ -34,11 +48,47 @@ import java.util.Properties;
 
 public class HbaseAdapter {
     private static final Logger logger = LogManager.getLogger(HbaseAdapter.class);
+    private static final int AGGREGATE_CACHING = 1000;
+    public static final String DEFAULT_CLUSTER = "default";
 
+    // 集群名，单例为default，多集群时由HbaseClusterRegistry指定
+    private final String clusterName;
     private HbaseConnectionPool connectionPool = null;
+    private HbaseTableStateCache tableStateCache = null;
+    private HbaseConfig hbaseConfig = null;
+    // 异步批量写，第一次使用时创建
+    private volatile HbaseBufferedWriter bufferedWriter = null;
+    private volatile HbaseWriteCallback bufferedWriteCallback = null;
+    private ExecutorService parallelScanExecutor = null;
+    private HbaseParallelScanner parallelScanner = null;
+    // 客户端行缓存，未配置hbase.row.cache.max.bytes时为null
+    private HbaseRowCache rowCache = null;
+    // 相同get请求合并，未开启hbase.get.coalescing.enable时为null
+    private HbaseGetCoalescer getCoalescer = null;
+    // 单行get微批合并，hbase.get.batch.window.millis为0时为null
+    private HbaseGetBatcher getBatcher = null;
+    private ExecutorService getBatchExecutor = null;
+    // 异步接口执行器
+    private HbaseAsyncExecutor asyncExecutor = null;
+    // 对冲读，未开启hbase.hedged.read.enable时为null
+    private HbaseHedgedReader hedgedReader = null;
+    // 大批量get/put的分块并发执行
+    private ExecutorService batchExecutor = null;
+    private HbaseBatchDispatcher batchDispatcher = null;
+    // 连接池和各操作的指标
+    private HbaseMetrics metrics = null;
+    // 熔断器，未开启hbase.circuit.breaker.enable时为null；熔断期间读请求的降级
+    private HbaseCircuitBreaker circuitBreaker = null;
+    private volatile HbaseFallback fallback = null;
     private static HbaseAdapter hbaseAdapter = null;
 
-    private HbaseAdapter() { }
+    private HbaseAdapter() {
+        this(DEFAULT_CLUSTER);
+    }
+
+    HbaseAdapter(String clusterName) {
+        this.clusterName = clusterName;
+    }
 
     public static HbaseAdapter getInstance() {
         if (null == hbaseAdapter) {
@@ -52,36 +102,9 @@ public class HbaseAdapter {
     }
 
     public int init(String fileName) {
+        HbaseConfig hbaseConfig;
         try {
-            // load and parse config file
-            FileInputStream in = new FileInputStream(fileName);
-            Properties props = new Properties();
-            props.load(in);
-
-            int poolSize = Integer.parseInt(props.getProperty("hbase.connection.poolsize"));
-            int waittime = Integer.parseInt(props.getProperty("hbase.connection.waittime.millis"));
-            int healthCheckInterval = Integer.parseInt(props.getProperty("hbase.connection.health.check.interval.second"));
-            String healthCheckTestTableName = props.getProperty("hbase.connection.health.check.tableName");
-            String hbaseSiteConfFile = props.getProperty("hbase.site.path");
-            logger.info("hbase connection pool init begin. pool size:" + poolSize
-                    + " waitTime:" + waittime + " health check interval:" + healthCheckInterval
-                    + " hbase site name:" + hbaseSiteConfFile);
-
-            // create hbase configuration by hase-site.xml
-            Configuration configuration = HBaseConfiguration.create();
-            FileInputStream hbaseSiteFileIn;
-            hbaseSiteFileIn = new FileInputStream(hbaseSiteConfFile);
-            configuration.addResource(hbaseSiteFileIn);
-
-            HbaseConfig hbaseConfig = new HbaseConfig(hbaseSiteConfFile, poolSize,
-                    waittime, healthCheckInterval, healthCheckTestTableName, configuration);
-
-            connectionPool = new HbaseConnectionPool();
-            int ret = connectionPool.init(hbaseConfig);
-            if (0 != ret) {
-                logger.fatal("init connectionPool failed");
-                return -1;
-            }
+            hbaseConfig = loadConfig(fileName);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             logger.fatal("file not found. file name :" + fileName);
@@ -91,14 +114,242 @@ public class HbaseAdapter {
             logger.fatal("properties load config file failed");
             return -1;
         }
+        return init(hbaseConfig);
+    }
+
+    public int init(HbaseConfig hbaseConfig) {
+        if (null == hbaseConfig) {
+            logger.fatal("hbase config is null");
+            return -1;
+        }
+        this.hbaseConfig = hbaseConfig;
+        long latencyWindowMillis = hbaseConfig.getMetricsLatencyWindowSecond() * 1000L;
+        metrics = new HbaseMetrics(clusterName, hbaseConfig.isMetricsJmxEnabled(), latencyWindowMillis);
+        tableStateCache = new HbaseTableStateCache(hbaseConfig.getTableStateCacheTtlMillis());
+        if (hbaseConfig.isGetCoalescingEnabled()) {
+            getCoalescer = new HbaseGetCoalescer();
+        }
+        if (hbaseConfig.getRowCacheMaxBytes() > 0) {
+            rowCache = new HbaseRowCache(hbaseConfig.getRowCacheMaxBytes(), hbaseConfig.getRowCacheTtlMillis());
+            for (Map.Entry<String, Long> entry : hbaseConfig.getRowCacheTableTtlMillis().entrySet()) {
+                rowCache.setTableTtl(entry.getKey(), entry.getValue());
+            }
+        }
+
+        connectionPool = new HbaseConnectionPool();
+        if (hbaseConfig.isCircuitBreakerEnabled()) {
+            circuitBreaker = new HbaseCircuitBreaker(hbaseConfig);
+            connectionPool.setCircuitBreaker(circuitBreaker);
+        }
+        int ret = connectionPool.init(hbaseConfig);
+        if (0 != ret) {
+            logger.fatal("init connectionPool failed");
+            return -1;
+        }
+        metrics.setPool(connectionPool);
+        metrics.setCircuitBreaker(circuitBreaker);
+        if (hbaseConfig.getMetricsReportIntervalSecond() > 0) {
+            metrics.addReporter(new HbaseLogMetricsReporter());
+            metrics.start(hbaseConfig.getMetricsReportIntervalSecond());
+        }
+        parallelScanExecutor = Executors.newFixedThreadPool(hbaseConfig.getParallelScanThreads(),
+                new HbaseThreadFactory("hbase-parallel-scan"));
+        parallelScanner = new HbaseParallelScanner(connectionPool, parallelScanExecutor);
+        asyncExecutor = new HbaseAsyncExecutor(hbaseConfig.getAsyncThreads(), hbaseConfig.getAsyncQueueSize());
+        if (hbaseConfig.isHedgedReadEnabled()) {
+            hedgedReader = new HbaseHedgedReader(hbaseConfig.getHedgedReadThreads(),
+                    hbaseConfig.getHedgedReadPercentile(), hbaseConfig.getHedgedReadMinDelayMillis(),
+                    hbaseConfig.getHedgedReadMaxRate(), hbaseConfig.getReadWaitTimeoutMillis(), latencyWindowMillis);
+        }
+        batchExecutor = Executors.newFixedThreadPool(hbaseConfig.getBatchThreads(),
+                new HbaseThreadFactory("hbase-batch"));
+        batchDispatcher = new HbaseBatchDispatcher(connectionPool, tableStateCache, batchExecutor,
+                hbaseConfig.getBatchChunkSize());
+        if (hbaseConfig.getGetBatchWindowMillis() > 0) {
+            getBatchExecutor = Executors.newFixedThreadPool(hbaseConfig.getGetBatchThreads(),
+                    new HbaseThreadFactory("hbase-get-batch"));
+            getBatcher = new HbaseGetBatcher(hbaseConfig.getGetBatchWindowMillis(), hbaseConfig.getGetBatchMaxSize(),
+                    getBatchExecutor, new HbaseGetBatcher.BatchLoader() {
+                        public Result[] load(String tableName, List<Get> gets) throws IOException {
+                            return fetchGets(tableName, gets);
+                        }
+                    });
+            getBatcher.start();
+        }
         return 0;
     }
 
+    /*
+     * 解析hbase-conf.properties，未配置的可选项使用HbaseConfig中的默认值
+     */
+    private static HbaseConfig loadConfig(String fileName) throws IOException {
+        // load and parse config file
+        FileInputStream in = new FileInputStream(fileName);
+        Properties props = new Properties();
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+
+        int poolSize = Integer.parseInt(props.getProperty("hbase.connection.poolsize").trim());
+        int waittime = Integer.parseInt(props.getProperty("hbase.connection.waittime.millis").trim());
+        int healthCheckInterval = Integer.parseInt(props.getProperty("hbase.connection.health.check.interval.second").trim());
+        String healthCheckTestTableName = props.getProperty("hbase.connection.health.check.tableName");
+        String hbaseSiteConfFile = props.getProperty("hbase.site.path").trim();
+        logger.info("hbase connection pool init begin. pool size:" + poolSize
+                + " waitTime:" + waittime + " health check interval:" + healthCheckInterval
+                + " hbase site name:" + hbaseSiteConfFile);
+
+        // create hbase configuration by hase-site.xml
+        Configuration configuration = HBaseConfiguration.create();
+        FileInputStream hbaseSiteFileIn;
+        hbaseSiteFileIn = new FileInputStream(hbaseSiteConfFile);
+        configuration.addResource(hbaseSiteFileIn);
+
+        HbaseConfig hbaseConfig = new HbaseConfig(hbaseSiteConfFile, poolSize,
+                waittime, healthCheckInterval, healthCheckTestTableName, configuration);
+        hbaseConfig.setMinPoolSize(getIntProperty(props, "hbase.connection.poolsize.min", -1));
+        hbaseConfig.setGrowWaitThresholdMillis(getLongProperty(props, "hbase.connection.grow.wait.threshold.millis",
+                hbaseConfig.getGrowWaitThresholdMillis()));
+        hbaseConfig.setIdleTimeoutMillis(getLongProperty(props, "hbase.connection.idle.timeout.millis",
+                hbaseConfig.getIdleTimeoutMillis()));
+        hbaseConfig.setWarmupThreads(getIntProperty(props, "hbase.connection.warmup.threads",
+                hbaseConfig.getWarmupThreads()));
+        hbaseConfig.setReadyPoolSize(getIntProperty(props, "hbase.connection.ready.size", -1));
+        String warmupTables = props.getProperty("hbase.connection.warmup.tables");
+        if (null != warmupTables) {
+            for (String table : warmupTables.split(",")) {
+                if (!table.trim().isEmpty()) {
+                    hbaseConfig.addWarmupTable(table.trim());
+                }
+            }
+        }
+        hbaseConfig.setMaxLeaseMillis(getLongProperty(props, "hbase.connection.max.lease.millis",
+                hbaseConfig.getMaxLeaseMillis()));
+        hbaseConfig.setLeaseStackTraceEnabled(getBooleanProperty(props, "hbase.connection.lease.stacktrace.enable",
+                hbaseConfig.isLeaseStackTraceEnabled()));
+        hbaseConfig.setValidateOnBorrow(getBooleanProperty(props, "hbase.connection.validate.on.borrow",
+                hbaseConfig.isValidateOnBorrow()));
+        hbaseConfig.setValidateOnReturn(getBooleanProperty(props, "hbase.connection.validate.on.return",
+                hbaseConfig.isValidateOnReturn()));
+        hbaseConfig.setCircuitBreakerEnabled(getBooleanProperty(props, "hbase.circuit.breaker.enable",
+                hbaseConfig.isCircuitBreakerEnabled()));
+        hbaseConfig.setCircuitBreakerFailureRate(getDoubleProperty(props, "hbase.circuit.breaker.failure.rate",
+                hbaseConfig.getCircuitBreakerFailureRate()));
+        hbaseConfig.setCircuitBreakerMinimumCalls(getIntProperty(props, "hbase.circuit.breaker.minimum.calls",
+                hbaseConfig.getCircuitBreakerMinimumCalls()));
+        hbaseConfig.setCircuitBreakerWindowMillis(getLongProperty(props, "hbase.circuit.breaker.window.millis",
+                hbaseConfig.getCircuitBreakerWindowMillis()));
+        hbaseConfig.setCircuitBreakerOpenMillis(getLongProperty(props, "hbase.circuit.breaker.open.millis",
+                hbaseConfig.getCircuitBreakerOpenMillis()));
+        hbaseConfig.setCircuitBreakerHalfOpenCalls(getIntProperty(props, "hbase.circuit.breaker.half.open.calls",
+                hbaseConfig.getCircuitBreakerHalfOpenCalls()));
+        hbaseConfig.setCircuitBreakerHealthCheckFailures(getIntProperty(props,
+                "hbase.circuit.breaker.health.check.failures", hbaseConfig.getCircuitBreakerHealthCheckFailures()));
+        hbaseConfig.setBatchChunkSize(getIntProperty(props, "hbase.batch.chunk.size",
+                hbaseConfig.getBatchChunkSize()));
+        hbaseConfig.setBatchThreads(getIntProperty(props, "hbase.batch.threads",
+                hbaseConfig.getBatchThreads()));
+        hbaseConfig.setSharedConnectionCount(getIntProperty(props, "hbase.connection.shared.count",
+                hbaseConfig.getSharedConnectionCount()));
+        hbaseConfig.setTableStateCacheTtlMillis(getLongProperty(props, "hbase.table.state.cache.ttl.millis",
+                hbaseConfig.getTableStateCacheTtlMillis()));
+        hbaseConfig.setWriteBufferSizeBytes(getLongProperty(props, "hbase.write.buffer.size.bytes",
+                hbaseConfig.getWriteBufferSizeBytes()));
+        hbaseConfig.setWriteBufferCapacity(getIntProperty(props, "hbase.write.buffer.capacity",
+                hbaseConfig.getWriteBufferCapacity()));
+        hbaseConfig.setWriteBatchSize(getIntProperty(props, "hbase.write.batch.size",
+                hbaseConfig.getWriteBatchSize()));
+        hbaseConfig.setWriteFlushIntervalMillis(getLongProperty(props, "hbase.write.flush.interval.millis",
+                hbaseConfig.getWriteFlushIntervalMillis()));
+        hbaseConfig.setWriteFlushThreads(getIntProperty(props, "hbase.write.flush.threads",
+                hbaseConfig.getWriteFlushThreads()));
+        hbaseConfig.setScanCaching(getIntProperty(props, "hbase.scan.caching", hbaseConfig.getScanCaching()));
+        hbaseConfig.setScanBatch(getIntProperty(props, "hbase.scan.batch", hbaseConfig.getScanBatch()));
+        hbaseConfig.setParallelScanThreads(getIntProperty(props, "hbase.scan.parallel.threads",
+                hbaseConfig.getParallelScanThreads()));
+        hbaseConfig.setRowCacheMaxBytes(getLongProperty(props, "hbase.row.cache.max.bytes",
+                hbaseConfig.getRowCacheMaxBytes()));
+        hbaseConfig.setRowCacheTtlMillis(getLongProperty(props, "hbase.row.cache.ttl.millis",
+                hbaseConfig.getRowCacheTtlMillis()));
+        // 单表ttl: hbase.row.cache.table.ttl.<表名>=毫秒
+        String tableTtlPrefix = "hbase.row.cache.table.ttl.";
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(tableTtlPrefix)) {
+                hbaseConfig.setRowCacheTableTtlMillis(key.substring(tableTtlPrefix.length()),
+                        Long.parseLong(props.getProperty(key).trim()));
+            }
+        }
+        hbaseConfig.setGetCoalescingEnabled(getBooleanProperty(props, "hbase.get.coalescing.enable",
+                hbaseConfig.isGetCoalescingEnabled()));
+        hbaseConfig.setGetBatchWindowMillis(getLongProperty(props, "hbase.get.batch.window.millis",
+                hbaseConfig.getGetBatchWindowMillis()));
+        hbaseConfig.setGetBatchMaxSize(getIntProperty(props, "hbase.get.batch.max.size",
+                hbaseConfig.getGetBatchMaxSize()));
+        hbaseConfig.setGetBatchThreads(getIntProperty(props, "hbase.get.batch.threads",
+                hbaseConfig.getGetBatchThreads()));
+        hbaseConfig.setAsyncThreads(getIntProperty(props, "hbase.async.threads", hbaseConfig.getAsyncThreads()));
+        hbaseConfig.setAsyncQueueSize(getIntProperty(props, "hbase.async.queue.size",
+                hbaseConfig.getAsyncQueueSize()));
+        hbaseConfig.setAsyncTimeoutMillis(getLongProperty(props, "hbase.async.timeout.millis",
+                hbaseConfig.getAsyncTimeoutMillis()));
+        hbaseConfig.setHedgedReadEnabled(getBooleanProperty(props, "hbase.hedged.read.enable",
+                hbaseConfig.isHedgedReadEnabled()));
+        hbaseConfig.setHedgedReadPercentile(getDoubleProperty(props, "hbase.hedged.read.percentile",
+                hbaseConfig.getHedgedReadPercentile()));
+        hbaseConfig.setHedgedReadMinDelayMillis(getLongProperty(props, "hbase.hedged.read.min.delay.millis",
+                hbaseConfig.getHedgedReadMinDelayMillis()));
+        hbaseConfig.setHedgedReadMaxRate(getDoubleProperty(props, "hbase.hedged.read.max.rate",
+                hbaseConfig.getHedgedReadMaxRate()));
+        hbaseConfig.setHedgedReadTimelineEnabled(getBooleanProperty(props, "hbase.hedged.read.timeline.enable",
+                hbaseConfig.isHedgedReadTimelineEnabled()));
+        hbaseConfig.setHedgedReadThreads(getIntProperty(props, "hbase.hedged.read.threads",
+                hbaseConfig.getHedgedReadThreads()));
+        hbaseConfig.setReadWaitTimeoutMillis(getLongProperty(props, "hbase.read.wait.timeout.millis",
+                hbaseConfig.getReadWaitTimeoutMillis()));
+        hbaseConfig.setFailoverLatencyThresholdMillis(getLongProperty(props,
+                "hbase.failover.latency.threshold.millis", hbaseConfig.getFailoverLatencyThresholdMillis()));
+        hbaseConfig.setFailoverMillis(getLongProperty(props, "hbase.failover.millis", hbaseConfig.getFailoverMillis()));
+        hbaseConfig.setMetricsJmxEnabled(getBooleanProperty(props, "hbase.metrics.jmx.enable",
+                hbaseConfig.isMetricsJmxEnabled()));
+        hbaseConfig.setMetricsReportIntervalSecond(getIntProperty(props, "hbase.metrics.report.interval.second",
+                hbaseConfig.getMetricsReportIntervalSecond()));
+        hbaseConfig.setMetricsLatencyWindowSecond(getIntProperty(props, "hbase.metrics.latency.window.second",
+                hbaseConfig.getMetricsLatencyWindowSecond()));
+        return hbaseConfig;
+    }
+
+    private static int getIntProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return null == value ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long getLongProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return null == value ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static double getDoubleProperty(Properties props, String key, double defaultValue) {
+        String value = props.getProperty(key);
+        return null == value ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    private static boolean getBooleanProperty(Properties props, String key, boolean defaultValue) {
+        String value = props.getProperty(key);
+        return null == value ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
     /*
      * 创建表
      */
     public void createTable(String tableName) {
         logger.info("begin to create table :" + tableName);
+        if (!allowRequest()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -107,7 +358,7 @@ public class HbaseAdapter {
                 return;
             }
             Admin admin = conn.getConnection().getAdmin();
-            TableName tabName = TableName.valueOf(tableName);
+            TableName tabName = HbaseTableNames.valueOf(tableName);
             if (admin.tableExists(tabName)) {
                 admin.disableTable(tabName);
                 admin.deleteTable(tabName);
@@ -116,6 +367,10 @@ public class HbaseAdapter {
             HTableDescriptor tableDescriptor = new HTableDescriptor(tableName);
             admin.createTable(tableDescriptor);
             admin.close();
+            tableStateCache.invalidate(tabName);
+            connectionPool.invalidateTables();
+            invalidateTableRows(tableName);
+            success = true;
         } catch (MasterNotRunningException e) {
             e.printStackTrace();
         } catch (ZooKeeperConnectionException e) {
@@ -126,6 +381,7 @@ public class HbaseAdapter {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.CREATE_TABLE, startNanos, success);
         }
         logger.info("create table success");
     }
@@ -134,6 +390,11 @@ public class HbaseAdapter {
      * 删除表
      */
     public void dropTable(String tableName) {
+        if (!allowRequest()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -142,19 +403,24 @@ public class HbaseAdapter {
                 return;
             }
             Admin admin = conn.getConnection().getAdmin();
-            TableName tabName = TableName.valueOf(tableName);
+            TableName tabName = HbaseTableNames.valueOf(tableName);
             if (admin.tableExists(tabName)) {
                 admin.disableTable(tabName);
                 admin.deleteTable(tabName);
                 admin.close();
                 admin = null;
             }
+            tableStateCache.invalidate(tabName);
+            connectionPool.invalidateTables();
+            invalidateTableRows(tableName);
+            success = true;
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.DROP_TABLE, startNanos, success);
         }
     }
 
@@ -163,6 +429,11 @@ public class HbaseAdapter {
      */
     public boolean isExist(String tableName) {
         boolean retValue = false;
+        if (!allowRequest()) {
+            return false;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -171,17 +442,19 @@ public class HbaseAdapter {
                 return false;
             }
             Admin admin = conn.getConnection().getAdmin();
-            TableName tabName = TableName.valueOf(tableName);
+            TableName tabName = HbaseTableNames.valueOf(tableName);
             if (admin.tableExists(tabName)) {
                 retValue = true;
             }
             admin.close();
+            success = true;
         } catch (IOException e) {
             logger.warn("exception:" + e.getMessage());
         } finally {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.EXISTS, startNanos, success);
         }
         return retValue;
     }
@@ -191,6 +464,22 @@ public class HbaseAdapter {
      * 单行删除，避免使用
      */
     public void deleteRowByRowKey(String tableName, String rowkey) {
+        deleteRowByRowKey(tableName, Bytes.toBytes(rowkey));
+    }
+
+    /*
+     * rowkey为buffer中position到limit的内容，不改变position；hbase的Delete只接受byte[]，这里复制一次
+     */
+    public void deleteRowByRowKey(String tableName, ByteBuffer row) {
+        deleteRowByRowKey(tableName, Bytes.getBytes(row));
+    }
+
+    public void deleteRowByRowKey(String tableName, byte[] row) {
+        if (!allowRequest()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -198,25 +487,36 @@ public class HbaseAdapter {
                 logger.error("get connection from pool failed");
                 return;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Delete del = new Delete(Bytes.toBytes(rowkey));
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            Table table = conn.getTable(tabName);
+            Delete del = new Delete(row);
             table.delete(del);
-            table.close();
-            table = null;
+            success = true;
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            invalidateRow(tableName, row);
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.DELETE, startNanos, success);
         }
     }
+
     /*
      * 多行同时删除
      */
     public void multiDeleteRowByRowKey(String tableName, String[] rowkeys) {
-        int rowNum = rowkeys.length;
+        multiDeleteRowByRowKey(tableName, toRows(rowkeys));
+    }
+
+    public void multiDeleteRowByRowKey(String tableName, List<byte[]> rows) {
+        int rowNum = rows.size();
+        if (!allowRequest()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -224,21 +524,24 @@ public class HbaseAdapter {
                 logger.error("get connection from pool failed");
                 return;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            List<Delete> list = new ArrayList<Delete>();
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            Table table = conn.getTable(tabName);
+            List<Delete> list = new ArrayList<Delete>(rowNum);
             for (int i = 0; i < rowNum; ++i) {
-                Delete del = new Delete(Bytes.toBytes(rowkeys[i]));
-                list.add(del);
-                table.delete(list);
-                table.close();
+                list.add(new Delete(rows.get(i)));
             }
+            table.delete(list);
+            success = true;
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            for (int i = 0; i < rowNum; ++i) {
+                invalidateRow(tableName, rows.get(i));
+            }
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.MULTI_DELETE, startNanos, success);
         }
     }
 
@@ -247,123 +550,377 @@ public class HbaseAdapter {
      * 当行获取，避免使用此函数
      */
     public Result getRowByRowKey(String tableName, String rowkey) {
+        return getRowByRowKey(tableName, rowkey, null);
+    }
+
+    /*
+     * 根据rowkey获取单行某个列簇的数据，columnFamily为null时获取整行
+     * 开启行缓存时优先从缓存读取
+     */
+    public Result getRowByRowKey(String tableName, String rowkey, String columnFamily) {
+        return getRowByRowKey(tableName, Bytes.toBytes(rowkey),
+                null == columnFamily ? null : HbaseColumn.family(columnFamily), rowkey);
+    }
+
+    public Result getRowByRowKey(String tableName, byte[] row) {
+        return getRowByRowKey(tableName, row, null);
+    }
+
+    /*
+     * family为null时获取整行，只使用family的列簇
+     */
+    public Result getRowByRowKey(String tableName, byte[] row, HbaseColumn family) {
+        return getRowByRowKey(tableName, row, family, null);
+    }
+
+    /*
+     * rowkey不为null时来自String接口，熔断降级调用String参数的fallback
+     */
+    private Result getRowByRowKey(String tableName, byte[] row, HbaseColumn family, String rowkey) {
+        if (!allowRequest()) {
+            HbaseFallback fallback = this.fallback;
+            if (null == fallback) {
+                return null;
+            }
+            if (null != rowkey) {
+                return fallback.getRow(tableName, rowkey, null == family ? null : family.getFamily());
+            }
+            return fallback.getRow(tableName, row, family);
+        }
+        long startNanos = System.nanoTime();
+        boolean[] loaded = {false};
         Result result = null;
-        HbaseConnection conn  = null;
         try {
-            TableName tabName = TableName.valueOf(tableName);
-            conn = connectionPool.getConnection();
-            if (null == conn) {
-                logger.error("get connection from pool failed");
+            result = readRow(tableName, row, family, loaded);
+        } finally {
+            recordOperation(tableName, HbaseOperation.GET, startNanos, null != result, loaded[0]);
+        }
+        return result;
+    }
+
+    /*
+     * rowkey为buffer中position到limit的内容，不改变position；hbase的Get只接受byte[]，这里复制一次
+     */
+    public Result getRowByRowKey(String tableName, ByteBuffer row, HbaseColumn family) {
+        return getRowByRowKey(tableName, Bytes.getBytes(row), family);
+    }
+
+    /*
+     * loaded[0]表示本次调用是否访问了集群：命中缓存或合并到其它线程的请求时为false
+     */
+    private Result readRow(String tableName, byte[] row, HbaseColumn family, boolean[] loaded) {
+        HbaseRowCache cache = rowCache;
+        if (null == cache || !cache.isCacheable(tableName)) {
+            return fetchRow(tableName, row, family, loaded);
+        }
+        String familyName = null == family ? null : family.getFamily();
+        Result result = cache.get(tableName, row, familyName);
+        if (null != result) {
+            return result;
+        }
+        long loadStamp = cache.loadStamp(tableName, row);
+        result = fetchRow(tableName, row, family, loaded);
+        cache.put(tableName, row, familyName, result, loadStamp);
+        return result;
+    }
+
+    /*
+     * 开启请求合并时，相同表/rowkey/列簇的并发get共享同一次hbase请求
+     */
+    private Result fetchRow(final String tableName, final byte[] row, final HbaseColumn family,
+                            final boolean[] loaded) {
+        HbaseGetCoalescer coalescer = getCoalescer;
+        if (null == coalescer) {
+            loaded[0] = true;
+            return loadRow(tableName, row, family);
+        }
+        try {
+            HbaseRowKey key = new HbaseRowKey(tableName, row, null == family ? null : family.getFamily());
+            return coalescer.get(key, new Callable<Result>() {
+                public Result call() {
+                    // 只有发起请求的线程执行loader
+                    loaded[0] = true;
+                    return loadRow(tableName, row, family);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("hbase coalesced get exception" + e.getMessage());
+            return null;
+        }
+    }
+
+    private Result loadRow(String tableName, byte[] row, HbaseColumn family) {
+        HbaseGetBatcher batcher = getBatcher;
+        if (null != batcher) {
+            Get get = new Get(row);
+            if (null != family) {
+                get.addFamily(family.getFamilyBytes());
+            }
+            try {
+                return batcher.submit(tableName, get).get(hbaseConfig.getReadWaitTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                logger.error("hbase batched get exception" + e.getCause().getMessage());
+                return null;
+            } catch (TimeoutException e) {
+                logger.error("hbase batched get timeout after " + hbaseConfig.getReadWaitTimeoutMillis() + "ms");
                 return null;
             }
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
-                logger.error("table " + tableName + " in hbase is not enable");
-            } else {
-                Get get = new Get(rowkey.getBytes());
-                result = new Result();
-                result = table.get(get);
+        }
+
+        Get get = new Get(row);
+        if (null != family) {
+            get.addFamily(family.getFamilyBytes());
+        }
+        try {
+            HbaseHedgedReader reader = hedgedReader;
+            if (null == reader) {
+                return getRow(tableName, get);
             }
-            table.close();
-            admin.close();
-            table = null;
+            return reader.read(getRowTask(tableName, get), getRowTask(tableName, hedgeGet(get)));
         } catch (IOException e) {
             e.printStackTrace();
             logger.error("hbase get exception" + e.getMessage());
-            return result;
+            return null;
+        }
+    }
+
+    /*
+     * 用一个池化连接发出一次单行get，表未启用时返回null
+     */
+    private Result getRow(String tableName, Get get) throws IOException {
+        HbaseConnection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            if (null == conn) {
+                throw new IOException("get connection from pool failed");
+            }
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
+                logger.error("table " + tableName + " in hbase is not enable");
+                return null;
+            }
+            return conn.getTable(tabName).get(get);
+        } catch (IOException e) {
+            tableStateCache.onException(tableName, e);
+            throw e;
         } finally {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
         }
-        return result;
+    }
+
+    private Callable<Result> getRowTask(final String tableName, final Get get) {
+        return new Callable<Result>() {
+            public Result call() throws IOException {
+                return getRow(tableName, get);
+            }
+        };
+    }
+
+    /*
+     * 对冲请求使用get的副本，开启hbase.hedged.read.timeline.enable时允许读副本region(结果可能是旧数据)
+     */
+    private Get hedgeGet(Get get) throws IOException {
+        Get copy = new Get(get);
+        if (hbaseConfig.isHedgedReadTimelineEnabled()) {
+            copy.setConsistency(Consistency.TIMELINE);
+        }
+        return copy;
     }
 
     /*
      * 多行同时获取
+     * 开启行缓存时只向hbase请求缓存中没有的行
      */
     public List<Result> multiGetRowByRowKey(String tableName, String[] rowkeys) {
-        int rowNum = rowkeys.length;
+        return multiGetRowByRowKey(tableName, toRows(rowkeys), rowkeys);
+    }
+
+    public List<Result> multiGetRowByRowKey(String tableName, List<byte[]> rows) {
+        return multiGetRowByRowKey(tableName, rows, null);
+    }
+
+    /*
+     * rowkeys不为null时来自String接口，熔断降级调用String参数的fallback
+     */
+    private List<Result> multiGetRowByRowKey(String tableName, List<byte[]> rows, String[] rowkeys) {
+        if (!allowRequest()) {
+            HbaseFallback fallback = this.fallback;
+            if (null == fallback) {
+                return null;
+            }
+            if (null != rowkeys) {
+                return fallback.multiGetRows(tableName, rowkeys);
+            }
+            return fallback.multiGetRows(tableName, rows);
+        }
+        long startNanos = System.nanoTime();
+        boolean[] loaded = {false};
+        List<Result> results = null;
+        try {
+            results = readRows(tableName, rows, loaded);
+        } finally {
+            recordOperation(tableName, HbaseOperation.MULTI_GET, startNanos, null != results, loaded[0]);
+        }
+        return results;
+    }
+
+    private static List<byte[]> toRows(String[] rowkeys) {
+        List<byte[]> rows = new ArrayList<byte[]>(rowkeys.length);
+        for (String rowkey : rowkeys) {
+            rows.add(Bytes.toBytes(rowkey));
+        }
+        return rows;
+    }
+
+    private List<Result> readRows(String tableName, List<byte[]> rows, boolean[] loaded) {
+        int rowNum = rows.size();
         if (0 == rowNum) {
             return null;
         }
-        List<Result> retList = new ArrayList<Result>();
-        HbaseConnection conn = null;
-        try {
-            conn = connectionPool.getConnection();
-            if (null == conn) {
-                logger.warn("get connection from pool failed");
+        HbaseRowCache cache = rowCache;
+        if (null == cache || !cache.isCacheable(tableName)) {
+            loaded[0] = true;
+            return loadRows(tableName, rows);
+        }
+
+        Result[] results = new Result[rowNum];
+        List<byte[]> missRows = new ArrayList<byte[]>();
+        List<Integer> missIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < rowNum; ++i) {
+            results[i] = cache.get(tableName, rows.get(i), null);
+            if (null == results[i]) {
+                missRows.add(rows.get(i));
+                missIndexes.add(i);
+            }
+        }
+        if (!missRows.isEmpty()) {
+            long[] loadStamps = new long[missRows.size()];
+            for (int i = 0; i < missRows.size(); ++i) {
+                loadStamps[i] = cache.loadStamp(tableName, missRows.get(i));
+            }
+            loaded[0] = true;
+            List<Result> loadedRows = loadRows(tableName, missRows);
+            if (null == loadedRows) {
                 return null;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
-                logger.error("table " + tableName + " in hbase is not enable");
-                retList = null;
-            } else {
-                List list = new ArrayList();
-                for (int i = 0; i < rowNum; ++i) {
-                    Get get = new Get(Bytes.toBytes(rowkeys[i]));
-                    list.add(get);
-                }
-                Result[] resluts = table.get(list);
-                for (int i = 0; i < resluts.length; ++i) {
-                    retList.add(resluts[i]);
-                }
+            for (int i = 0; i < loadedRows.size(); ++i) {
+                results[missIndexes.get(i)] = loadedRows.get(i);
+                cache.put(tableName, missRows.get(i), null, loadedRows.get(i), loadStamps[i]);
             }
-            table.close();
-            admin.close();
+        }
+        List<Result> retList = new ArrayList<Result>(rowNum);
+        for (int i = 0; i < rowNum; ++i) {
+            retList.add(results[i]);
+        }
+        return retList;
+    }
+
+    private List<Result> loadRows(String tableName, List<byte[]> rows) {
+        List<Get> gets = new ArrayList<Get>(rows.size());
+        for (byte[] row : rows) {
+            gets.add(new Get(row));
+        }
+        try {
+            Result[] results = fetchGets(tableName, gets);
+            List<Result> retList = new ArrayList<Result>(results.length);
+            for (int i = 0; i < results.length; ++i) {
+                retList.add(results[i]);
+            }
+            return retList;
         } catch (IOException e) {
             e.printStackTrace();
             logger.error("hbase multi get exception" + e.getMessage());
             return null;
-        } finally {
-            if (conn != null) {
-                connectionPool.releaseConnection(conn);
+        }
+    }
+
+    /*
+     * 超过hbase.batch.chunk.size的批量get切块并发执行，任一行失败则整体失败；
+     * 开启对冲读时，批量get慢于对冲延迟会在另一个池化连接上再发一次
+     */
+    private Result[] fetchGets(final String tableName, final List<Get> gets) throws IOException {
+        HbaseBatchDispatcher dispatcher = batchDispatcher;
+        if (null != dispatcher && dispatcher.shouldSplit(gets.size())) {
+            HbaseBatchResult<Result> batchResult = dispatcher.get(tableName, gets);
+            if (!batchResult.isSuccess()) {
+                throw new IOException(batchResult.getFailureCount() + " of " + gets.size() + " gets failed",
+                        batchResult.getFirstError());
             }
+            return batchResult.getResults().toArray(new Result[gets.size()]);
         }
-        return retList;
+        HbaseHedgedReader reader = hedgedReader;
+        if (null == reader) {
+            return loadGets(tableName, gets);
+        }
+        final List<Get> hedgeGets = new ArrayList<Get>(gets.size());
+        for (Get get : gets) {
+            hedgeGets.add(hedgeGet(get));
+        }
+        return reader.read(new Callable<Result[]>() {
+            public Result[] call() throws IOException {
+                return loadGets(tableName, gets);
+            }
+        }, new Callable<Result[]>() {
+            public Result[] call() throws IOException {
+                return loadGets(tableName, hedgeGets);
+            }
+        });
     }
 
     /*
-     * 新增和更新共用put，如果行键存在，则更新；否则新增
-     * 单条数据插入或更新，避免调用
+     * 用一个池化连接发出一次批量get，失败时抛出异常
      */
-    public int putRowByRowKey(String tableName, String rowkey, String columnFamily, String columm, String value) {
-        int ret = 0;
+    private Result[] loadGets(String tableName, List<Get> gets) throws IOException {
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
             if (null == conn) {
-                logger.warn("get connection from pool failed");
-                return -1;
+                throw new IOException("get connection from pool failed");
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
-                logger.error("table " + tableName + " in hbase is not enable");
-                ret = -1;
-            } else {
-                Put put = new Put(Bytes.toBytes(rowkey));
-                put.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(columm), Bytes.toBytes(value));
-                table.put(put);
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
+                throw new IOException("table " + tableName + " in hbase is not enable");
             }
-            table.close();
-            admin.close();
-            table = null;
+            return conn.getTable(tabName).get(gets);
         } catch (IOException e) {
-            e.printStackTrace();
-            logger.error("hbase put exception:" + e.getMessage());
-            return -1;
+            tableStateCache.onException(tableName, e);
+            throw e;
         } finally {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
         }
-        return ret;
+    }
+
+    /*
+     * 新增和更新共用put，如果行键存在，则更新；否则新增
+     * 单条数据插入或更新，避免调用
+     */
+    public int putRowByRowKey(String tableName, String rowkey, String columnFamily, String columm, String value) {
+        return putRowByRowKey(tableName, Bytes.toBytes(rowkey), HbaseColumn.of(columnFamily, columm),
+                Bytes.toBytes(value));
+    }
+
+    public int putRowByRowKey(String tableName, byte[] row, HbaseColumn column, byte[] value) {
+        Put put = new Put(row);
+        put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), value);
+        return putRow(tableName, put, HbaseOperation.PUT);
+    }
+
+    /*
+     * rowkey和value为buffer中position到limit的内容，不改变position
+     * Put的ByteBuffer构造和addColumn用相对读取复制内容，传入duplicate()，调用方的buffer可以重复使用
+     */
+    public int putRowByRowKey(String tableName, ByteBuffer row, HbaseColumn column, ByteBuffer value) {
+        Put put = new Put(row.duplicate());
+        put.addColumn(column.getFamilyBytes(), ByteBuffer.wrap(column.getQualifierBytes()),
+                HConstants.LATEST_TIMESTAMP, value.duplicate());
+        return putRow(tableName, put, HbaseOperation.PUT);
     }
 
     /*
@@ -377,7 +934,37 @@ public class HbaseAdapter {
         if (colNum != valNum) {
             return -1;
         }
+        Put put = new Put(Bytes.toBytes(rowkey));
+        for (int i = 0; i < colNum; ++i) {
+            HbaseColumn column = HbaseColumn.of(columnFamily, columns[i]);
+            put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), Bytes.toBytes(values[i]));
+        }
+        return putRow(tableName, put, HbaseOperation.MULTI_PUT);
+    }
+
+    /*
+     * 一行写入多列，列可以属于不同列簇
+     */
+    public int multiPutRowByRowKey(String tableName, byte[] row, HbaseColumn[] columns, byte[][] values) {
+        int colNum = columns.length;
+        if (colNum != values.length) {
+            return -1;
+        }
+        Put put = new Put(row);
+        for (int i = 0; i < colNum; ++i) {
+            put.addColumn(columns[i].getFamilyBytes(), columns[i].getQualifierBytes(), values[i]);
+        }
+        return putRow(tableName, put, HbaseOperation.MULTI_PUT);
+    }
+
+    private int putRow(String tableName, Put put, HbaseOperation operation) {
         int ret = 0;
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        boolean tableEnabled = true;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -385,30 +972,27 @@ public class HbaseAdapter {
                 logger.warn("get connection from pool failed");
                 return -1;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            Table table = conn.getTable(tabName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
                 logger.error("table " + tableName + " in hbase is not enable");
+                tableEnabled = false;
                 ret = -1;
             } else {
-                Put put = new Put(Bytes.toBytes(rowkey));
-                for (int i = 0; i < colNum; ++i) {
-                    put.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(columns[i]), Bytes.toBytes(values[i]));
-                }
                 table.put(put);
+                success = true;
             }
-            table.close();
-            admin.close();
-            table = null;
         } catch (IOException e) {
             e.printStackTrace();
-            logger.error("hbase multi put exception." + e.getMessage());
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase put exception:" + e.getMessage());
             return -1;
         } finally {
+            invalidateRow(tableName, put.getRow());
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, operation, startNanos, success, tableEnabled);
         }
         return ret;
     }
@@ -421,49 +1005,95 @@ public class HbaseAdapter {
                                     final String column,
                                     final String[] rowkeys,
                                     final String[]  valueList) {
-        int ret = 0;
         int keySize = rowkeys.length;
         int listSize = valueList.length;
         if (keySize != listSize) {
             logger.warn("rowkeys size not equal to value list size");
             return -1;
         }
-        HbaseConnection conn = null;
-        try {
-            conn = connectionPool.getConnection();
-            if (null == conn) {
-                logger.warn("get connection from pool failed");
-                return -1;
-            }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
-                logger.error("table " + tableName + " in hbase is not enable");
+        byte[][] values = new byte[listSize][];
+        for (int i = 0; i < listSize; ++i) {
+            values[i] = Bytes.toBytes(valueList[i]);
+        }
+        return multiPutRowsByRowKey(tableName, HbaseColumn.of(columnFamily, column), toRows(rowkeys), values);
+    }
+
+    public int multiPutRowsByRowKey(String tableName, HbaseColumn column, List<byte[]> rows, byte[][] values) {
+        int ret = 0;
+        int keySize = rows.size();
+        if (keySize != values.length) {
+            logger.warn("rowkeys size not equal to value list size");
+            return -1;
+        }
+        if (batchDispatcher.shouldSplit(keySize)) {
+            List<Put> putList = new ArrayList<Put>(keySize);
+            for (int i = 0; i < keySize; ++i) {
+                Put put = new Put(rows.get(i));
+                put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), values[i]);
+                putList.add(put);
+            }
+            return batchRet(batchPut(tableName, putList));
+        }
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        boolean tableEnabled = true;
+        HbaseConnection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            if (null == conn) {
+                logger.warn("get connection from pool failed");
+                return -1;
+            }
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            Table table = conn.getTable(tabName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
+                logger.error("table " + tableName + " in hbase is not enable");
+                tableEnabled = false;
                 ret = -1;
             } else {
-                List<Put> putList = new ArrayList<Put>();
+                List<Put> putList = new ArrayList<Put>(keySize);
                 for (int i = 0; i < keySize; ++i) {
-                    Put put = new Put(Bytes.toBytes(rowkeys[i]));
-                    put.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(column), Bytes.toBytes(valueList[i]));
+                    Put put = new Put(rows.get(i));
+                    put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), values[i]);
                     putList.add(put);
                 }
                 table.put(putList);
+                success = true;
             }
-            table.close();
-            admin.close();
         } catch (IOException e) {
             e.printStackTrace();
+            tableStateCache.onException(tableName, e);
             logger.error("hbase multiput exception." + e.getMessage());
+            ret = -1;
         } finally {
+            for (int i = 0; i < keySize; ++i) {
+                invalidateRow(tableName, rows.get(i));
+            }
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.MULTI_PUT, startNanos, success, tableEnabled);
         }
         return ret;
     }
 
+    /*
+     * 表未启用时返回-1，与超过hbase.batch.chunk.size走切块批量写时一致
+     */
     public int multiPut(String tableName, List<Put> putList) {
+        if (batchDispatcher.shouldSplit(putList.size())) {
+            return batchRet(batchPut(tableName, putList));
+        }
+        if (!allowRequest()) {
+            return -1;
+        }
+        int ret = 0;
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        boolean tableEnabled = true;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -471,31 +1101,110 @@ public class HbaseAdapter {
                 logger.warn("get connection from pool failed");
                 return -1;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Admin admin = conn.getConnection().getAdmin();
-            Table table = conn.getConnection().getTable(tabName);
-            if (!admin.isTableEnabled(tabName)) {
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            Table table = conn.getTable(tabName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
                 logger.error("table " + tableName + " in hbase is not enable");
+                tableEnabled = false;
+                ret = -1;
             } else {
                 table.put(putList);
+                success = true;
             }
-            table.close();
-            admin.close();
-            table = null;
         } catch (IOException e) {
             e.printStackTrace();
+            tableStateCache.onException(tableName, e);
             return -1;
         } finally {
+            invalidateRows(tableName, putList);
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.MULTI_PUT, startNanos, success, tableEnabled);
+        }
+        return ret;
+    }
+
+    /*
+     * 批量get，逐行返回结果或失败原因，调用方可以只重试失败的行；
+     * 超过hbase.batch.chunk.size时按region server分组切块并发执行。整体失败(表未启用、熔断等)返回null
+     */
+    public HbaseBatchResult<Result> batchGet(String tableName, List<Get> gets) {
+        if (!allowRequest()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        HbaseBatchResult<Result> batchResult = null;
+        boolean[] sent = {false};
+        try {
+            batchResult = batchDispatcher.get(tableName, gets, sent);
+        } catch (IOException e) {
+            logger.error("hbase batch get exception." + e.getMessage());
+        } finally {
+            // 表未启用、借不到连接时请求没有到达集群，不计入熔断
+            recordOperation(tableName, HbaseOperation.MULTI_GET, startNanos,
+                    null != batchResult && batchResult.isSuccess(), sent[0]);
+        }
+        return batchResult;
+    }
+
+    /*
+     * 批量put，逐行返回成功或失败原因，失败的行可以单独重试；整体失败返回null
+     */
+    public HbaseBatchResult<Void> batchPut(String tableName, List<Put> putList) {
+        if (!allowRequest()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        HbaseBatchResult<Void> batchResult = null;
+        boolean[] sent = {false};
+        try {
+            batchResult = batchDispatcher.mutate(tableName, putList, sent);
+        } catch (IOException e) {
+            logger.error("hbase batch put exception." + e.getMessage());
+        } finally {
+            invalidateRows(tableName, putList);
+            recordOperation(tableName, HbaseOperation.MULTI_PUT, startNanos,
+                    null != batchResult && batchResult.isSuccess(), sent[0]);
+        }
+        return batchResult;
+    }
+
+    private static int batchRet(HbaseBatchResult<?> batchResult) {
+        if (null == batchResult) {
+            return -1;
+        }
+        if (!batchResult.isSuccess()) {
+            logger.error("hbase batch put failed. failed rows:" + batchResult.getFailureCount()
+                    + " first exception:" + batchResult.getFirstError());
+            return -1;
         }
         return 0;
     }
 
     public List<Result> scanRowByRange(String tableName, String beginRow, String endRow) {
+        return scanRowByRange(tableName, null, null, beginRow, endRow);
+    }
+
+    /*
+     * column为null时返回整个列簇，columnFamily也为null时返回整行
+     */
+    public List<Result> scanRowByRange(String tableName, String columnFamily, String column,
+                                       String beginRow, String endRow) {
+        return scan(tableName, rangeSpec(columnFamily, column, beginRow, endRow));
+    }
+
+    /*
+     * 按scan参数扫描，结果全部放在内存中，失败返回null；大范围扫描请使用openScanner或带handler的接口
+     */
+    public List<Result> scan(String tableName, HbaseScanSpec spec) {
+        if (!allowRequest()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        boolean tableEnabled = true;
         List<Result> list = new ArrayList<Result>();
-        ResultScanner results = null;
         HbaseConnection conn = null;
         try {
             conn = connectionPool.getConnection();
@@ -503,84 +1212,744 @@ public class HbaseAdapter {
                 logger.error("get connection from pool failed");
                 return null;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
                 logger.error("table " + tableName + " in hbase is not enable");
-                list = null;
-            } else {
-                Scan scan = new Scan();
-                scan.setStartRow(Bytes.toBytes(beginRow));
-                scan.setStopRow(Bytes.toBytes(endRow + 0)); // 包括改行
-                results = table.getScanner(scan);
-
-                for (Result result : results) {
+                tableEnabled = false;
+                return null;
+            }
+            ResultScanner results = conn.getTable(tabName).getScanner(buildScan(spec));
+            try {
+                long limit = spec.getLimit();
+                Result result;
+                while ((limit <= 0 || list.size() < limit) && null != (result = results.next())) {
                     list.add(result);
                 }
+            } finally {
                 results.close();
             }
-            table.close();
-            admin.close();
-            table = null;
+            success = true;
+            if (logger.isDebugEnabled()) {
+                logger.debug("hbase table getScanner success. result size: " + list.size());
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            tableStateCache.onException(tableName, e);
             logger.error("hbase scan exception. " + e.getMessage());
             return null;
         } finally {
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            recordOperation(tableName, HbaseOperation.SCAN, startNanos, success, tableEnabled);
         }
         return list;
     }
 
-    public List<Result> scanRowByRange(String tableName, String columnFamily, String column,
-                                       String beginRow, String endRow) {
-        List<Result> list = new ArrayList<Result>();
-        ResultScanner results = null;
+    /*
+     * 流式scan，返回的scanner持有一个池化连接，使用完必须close(可用try-with-resources)
+     * 扫描范围[beginRow, endRow]，caching/batch小于等于0时使用hbase.scan.caching/hbase.scan.batch配置
+     */
+    public HbaseRowScanner openScanner(String tableName, String beginRow, String endRow) {
+        return openScanner(tableName, null, beginRow, endRow, 0, 0);
+    }
+
+    public HbaseRowScanner openScanner(String tableName, String columnFamily, String beginRow, String endRow) {
+        return openScanner(tableName, columnFamily, beginRow, endRow, 0, 0);
+    }
+
+    public HbaseRowScanner openScanner(String tableName, String columnFamily, String beginRow, String endRow,
+                                       int caching, int batch) {
+        return openScanner(tableName, rangeSpec(columnFamily, null, beginRow, endRow)
+                .setCaching(caching).setBatch(batch));
+    }
+
+    public HbaseRowScanner openScanner(String tableName, HbaseScanSpec spec) {
+        if (!allowRequest()) {
+            return null;
+        }
+        HbaseRowScanner scanner = null;
+        boolean[] sent = {false};
+        try {
+            scanner = openRangeScanner(tableName, spec, sent);
+        } finally {
+            if (sent[0]) {
+                recordBreaker(null != scanner);
+            } else {
+                ignoreBreaker();
+            }
+        }
+        return scanner;
+    }
+
+    /*
+     * 失败返回null；借不到连接或表未启用时sent[0]保持false，表示请求没有到达集群
+     */
+    private HbaseRowScanner openRangeScanner(String tableName, HbaseScanSpec spec, boolean[] sent) {
         HbaseConnection conn = null;
+        Table table = null;
         try {
             conn = connectionPool.getConnection();
             if (null == conn) {
                 logger.error("get connection from pool failed");
                 return null;
             }
-            TableName tabName = TableName.valueOf(tableName);
-            Table table = conn.getConnection().getTable(tabName);
-            Admin admin = conn.getConnection().getAdmin();
-            if (!admin.isTableEnabled(tabName)) {
+            TableName tabName = HbaseTableNames.valueOf(tableName);
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
                 logger.error("table " + tableName + " in hbase is not enable");
-                list = null;
-            } else {
-                Scan scan = new Scan();
-                scan.addFamily(Bytes.toBytes(columnFamily));
-                // scan.addColumn(Bytes.toBytes(column), Bytes.toBytes(column));
-                scan.setStartRow(Bytes.toBytes(beginRow));
-                scan.setStopRow(Bytes.toBytes(endRow + 0)); // 包括该行
-                long begin = System.currentTimeMillis();
-                results = table.getScanner(scan);
-                long end = System.currentTimeMillis();
-                if (null != results) {
-                    for (Result result : results) {
-                        list.add(result);
-                    }
-                    results.close();
-                } else {
-                    logger.warn("scan from hbase result is null");
-                }
-                logger.info("hbase table getScanner success. result size: " + list.size() + " cost:" + (end - begin) + "ms");
+                connectionPool.releaseConnection(conn);
+                return null;
             }
-            table.close();
-            admin.close();
-            table = null;
+            sent[0] = true;
+            // scanner交给调用方，可能跨线程使用，不使用连接缓存的表句柄，由scanner关闭
+            table = conn.getConnection().getTable(tabName);
+            ResultScanner results = table.getScanner(buildScan(spec));
+            HbaseRowScanner scanner = new HbaseRowScanner(connectionPool, conn, table, results);
+            scanner.setLimit(spec.getLimit());
+            return scanner;
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase open scanner exception. " + e.getMessage());
+            if (null != table) {
+                try {
+                    table.close();
+                } catch (IOException ce) {
+                    logger.warn("close table failed. exception:" + ce.getMessage());
+                }
+            }
             if (conn != null) {
                 connectionPool.releaseConnection(conn);
             }
+            return null;
+        }
+    }
+
+    /*
+     * 流式scan，每行回调一次handler，handler返回false时提前结束
+     * 返回处理的行数，失败返回-1
+     */
+    public long scanRowByRange(String tableName, String beginRow, String endRow, HbaseRowHandler handler) {
+        return scanRowByRange(tableName, null, beginRow, endRow, handler);
+    }
+
+    public long scanRowByRange(String tableName, String columnFamily, String beginRow, String endRow,
+                               HbaseRowHandler handler) {
+        return scan(tableName, rangeSpec(columnFamily, null, beginRow, endRow), handler);
+    }
+
+    public long scan(String tableName, HbaseScanSpec spec, HbaseRowHandler handler) {
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        boolean[] sent = {false};
+        HbaseRowScanner scanner = openRangeScanner(tableName, spec, sent);
+        if (null == scanner) {
+            recordOperation(tableName, HbaseOperation.SCAN, startNanos, false, sent[0]);
+            return -1;
+        }
+        long count = 0;
+        boolean success = false;
+        try {
+            Result result;
+            while (null != (result = scanner.next())) {
+                ++count;
+                if (!handler.handle(result)) {
+                    break;
+                }
+            }
+            success = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase scan exception. " + e.getMessage());
+            return -1;
+        } finally {
+            scanner.close();
+            recordOperation(tableName, HbaseOperation.SCAN, startNanos, success);
+        }
+        return count;
+    }
+
+    /*
+     * 按region边界并行scan，适合跨大量region的大范围导出
+     * ordered为true时结果按rowkey有序，否则按region完成先后合并
+     */
+    public List<Result> parallelScanRowByRange(String tableName, String beginRow, String endRow, boolean ordered) {
+        return parallelScanRowByRange(tableName, null, beginRow, endRow, ordered);
+    }
+
+    public List<Result> parallelScanRowByRange(String tableName, String columnFamily,
+                                               String beginRow, String endRow, boolean ordered) {
+        return parallelScan(tableName, rangeSpec(columnFamily, null, beginRow, endRow), ordered);
+    }
+
+    /*
+     * 按scan参数并行扫描；设置了limit时每个region最多返回limit行，合并后截断到limit行
+     */
+    public List<Result> parallelScan(String tableName, HbaseScanSpec spec, boolean ordered) {
+        if (!allowRequest()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            List<Result> results = parallelScanner.scan(tableName, buildScan(spec), ordered);
+            if (spec.getLimit() > 0 && results.size() > spec.getLimit()) {
+                results = new ArrayList<Result>(results.subList(0, (int) spec.getLimit()));
+            }
+            success = true;
+            return results;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase parallel scan exception. " + e.getMessage());
+            return null;
+        } finally {
+            recordOperation(tableName, HbaseOperation.PARALLEL_SCAN, startNanos, success);
+        }
+    }
+
+    /*
+     * 并行流式scan，handler的调用互斥但不保证顺序，返回处理的行数，失败返回-1
+     */
+    public long parallelScanRowByRange(String tableName, String columnFamily, String beginRow, String endRow,
+                                       HbaseRowHandler handler) {
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            Scan scan = buildScan(rangeSpec(columnFamily, null, beginRow, endRow));
+            long count = parallelScanner.scan(tableName, scan, handler);
+            success = true;
+            return count;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase parallel scan exception. " + e.getMessage());
+            return -1;
+        } finally {
+            recordOperation(tableName, HbaseOperation.PARALLEL_SCAN, startNanos, success);
+        }
+    }
+
+    /*
+     * 统计[beginRow, endRow]范围内的行数，失败返回-1
+     * 每行只返回第一个cell的key(FirstKeyOnlyFilter+KeyOnlyFilter)，按region并行扫描，不缓存数据块
+     */
+    public long countRows(String tableName, String beginRow, String endRow) {
+        return countRows(tableName, HbaseScanSpec.range(beginRow, endRow).setCacheBlocks(false));
+    }
+
+    /*
+     * 按scan参数统计行数，spec中的列投影和过滤器同样生效(只统计有这些列、满足过滤条件的行)
+     * 没有过滤器时每行只取第一个cell的key；有过滤器时不能这样做：FirstKeyOnlyFilter会让
+     * SingleColumnValueFilter、列过滤器等只看到每行第一个cell而误判，此时按spec的列投影扫描，
+     * 应只投影过滤条件用到的列以减少传输。spec不应设置batch，否则宽行会被拆成多个Result重复计数
+     */
+    public long countRows(String tableName, HbaseScanSpec spec) {
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            List<Filter> keyOnly = new ArrayList<Filter>(2);
+            if (spec.getFilters().isEmpty()) {
+                keyOnly.add(new FirstKeyOnlyFilter());
+                keyOnly.add(new KeyOnlyFilter());
+            }
+            Scan scan = spec.toScan(aggregateCaching(spec), 0, keyOnly);
+            long count = parallelScanner.scan(tableName, scan, new HbaseRowHandler() {
+                public boolean handle(Result result) {
+                    return true;
+                }
+            });
+            if (spec.getLimit() > 0) {
+                count = Math.min(count, spec.getLimit());
+            }
+            success = true;
+            return count;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase count rows exception. " + e.getMessage());
+            return -1;
+        } finally {
+            recordOperation(tableName, HbaseOperation.AGGREGATE, startNanos, success);
+        }
+    }
+
+    /*
+     * 对[beginRow, endRow]范围内某一列的值求行数、和、最小值、最大值，失败返回null
+     * 只返回该列，按region并行扫描，不缓存数据块
+     */
+    public HbaseAggregation aggregate(String tableName, HbaseColumn column, String beginRow, String endRow,
+                                      HbaseAggregation.ValueType valueType) {
+        return aggregate(tableName, column,
+                HbaseScanSpec.range(beginRow, endRow).addColumn(column).setCacheBlocks(false), valueType);
+    }
+
+    /*
+     * 按scan参数聚合column列，spec应只投影该列(或所在列簇)，以免传输无关的列。
+     * 各region并行扫描，spec设置了limit时参与聚合的是最先返回的任意limit行(抽样)，每次调用可能不同，
+     * 不是范围内rowkey最小的limit行；需要前N行的聚合请用scan(tableName, spec, handler)顺序扫描后自行累加
+     */
+    public HbaseAggregation aggregate(String tableName, final HbaseColumn column, HbaseScanSpec spec,
+                                      HbaseAggregation.ValueType valueType) {
+        if (!allowRequest()) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        final HbaseAggregation aggregation = new HbaseAggregation(valueType);
+        try {
+            Scan scan = spec.toScan(aggregateCaching(spec), 0);
+            final long limit = spec.getLimit();
+            // handler的调用由parallelScanner保证互斥
+            parallelScanner.scan(tableName, scan, new HbaseRowHandler() {
+                private long rows = 0;
+
+                public boolean handle(Result result) {
+                    aggregation.add(result.getValue(column.getFamilyBytes(), column.getQualifierBytes()));
+                    return limit <= 0 || ++rows < limit;
+                }
+            });
+            success = true;
+            return aggregation;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tableStateCache.onException(tableName, e);
+            logger.error("hbase aggregate exception. " + e.getMessage());
+            return null;
+        } finally {
+            recordOperation(tableName, HbaseOperation.AGGREGATE, startNanos, success);
+        }
+    }
+
+    /*
+     * 聚合只传输很少的数据，未指定caching时每次rpc多取一些行
+     */
+    private int aggregateCaching(HbaseScanSpec spec) {
+        if (spec.getCaching() > 0) {
+            return spec.getCaching();
+        }
+        return Math.max(hbaseConfig.getScanCaching(), AGGREGATE_CACHING);
+    }
+
+    /*
+     * [beginRow, endRow]范围的scan参数，columnFamily为null时返回整行，column为null时返回整个列簇
+     */
+    private static HbaseScanSpec rangeSpec(String columnFamily, String column, String beginRow, String endRow) {
+        HbaseScanSpec spec = HbaseScanSpec.range(beginRow, endRow);
+        if (null != columnFamily) {
+            spec.addColumn(null == column ? HbaseColumn.family(columnFamily) : HbaseColumn.of(columnFamily, column));
+        }
+        return spec;
+    }
+
+    private Scan buildScan(HbaseScanSpec spec) throws IOException {
+        return spec.toScan(hbaseConfig.getScanCaching(), hbaseConfig.getScanBatch());
+    }
+
+    public HbaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void recordOperation(String tableName, HbaseOperation operation, long startNanos, boolean success) {
+        recordOperation(tableName, operation, startNanos, success, true);
+    }
+
+    /*
+     * reachedCluster为false表示请求没有访问集群(命中缓存、合并到其它请求、表未启用、写入异步缓冲)，只计指标，
+     * 不作为熔断的调用结果
+     */
+    private void recordOperation(String tableName, HbaseOperation operation, long startNanos, boolean success,
+                                 boolean reachedCluster) {
+        HbaseMetrics m = metrics;
+        if (null != m) {
+            m.recordOperation(tableName, operation, startNanos, success);
+        }
+        if (reachedCluster) {
+            recordBreaker(success);
+        } else {
+            ignoreBreaker();
+        }
+    }
+
+    /*
+     * 没有到达集群的请求，半开状态下归还试探名额
+     */
+    private void ignoreBreaker() {
+        HbaseCircuitBreaker breaker = circuitBreaker;
+        if (null != breaker) {
+            breaker.onIgnored();
+        }
+    }
+
+    public HbaseCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /*
+     * 设置熔断期间get/multiGet的降级，为null时熔断期间读请求返回null
+     */
+    public void setFallback(HbaseFallback fallback) {
+        this.fallback = fallback;
+    }
+
+    /*
+     * 最近一次健康检查成功且熔断器未打开
+     */
+    public boolean isAvailable() {
+        HbaseCircuitBreaker breaker = circuitBreaker;
+        if (null != breaker && HbaseCircuitBreaker.State.OPEN == breaker.getCurrentState()) {
+            return false;
+        }
+        return null != connectionPool && 0 == connectionPool.getUnavailableTimes();
+    }
+
+    public HbaseConfig getHbaseConfig() {
+        return hbaseConfig;
+    }
+
+    /*
+     * 熔断打开时立即失败，不再等待连接池和hbase客户端重试
+     */
+    private boolean allowRequest() {
+        HbaseCircuitBreaker breaker = circuitBreaker;
+        return null == breaker || breaker.allowRequest();
+    }
+
+    private void recordBreaker(boolean success) {
+        HbaseCircuitBreaker breaker = circuitBreaker;
+        if (null == breaker) {
+            return;
+        }
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    public HbaseRowCache getRowCache() {
+        return rowCache;
+    }
+
+    public HbaseGetCoalescer getGetCoalescer() {
+        return getCoalescer;
+    }
+
+    public HbaseGetBatcher getGetBatcher() {
+        return getBatcher;
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    public HbaseHedgedReader getHedgedReader() {
+        return hedgedReader;
+    }
+
+    private void invalidateRow(String tableName, byte[] row) {
+        HbaseRowCache cache = rowCache;
+        if (null != cache) {
+            cache.invalidate(tableName, row);
+        }
+    }
+
+    private void invalidateRows(String tableName, List<? extends Mutation> mutations) {
+        HbaseRowCache cache = rowCache;
+        if (null != cache && null != mutations) {
+            for (Mutation mutation : mutations) {
+                cache.invalidate(tableName, mutation.getRow());
+            }
+        }
+    }
+
+    private void invalidateTableRows(String tableName) {
+        HbaseRowCache cache = rowCache;
+        if (null != cache) {
+            cache.invalidateTable(tableName);
+        }
+    }
+
+    /*
+     * 设置异步批量写每一批完成后的回调
+     */
+    public void setBufferedWriteCallback(HbaseWriteCallback callback) {
+        this.bufferedWriteCallback = callback;
+    }
+
+    /*
+     * 异步批量写完成后先失效行缓存，再转发给使用方设置的回调
+     */
+    private class RowCacheWriteCallback implements HbaseWriteCallback {
+        public void onSuccess(String tableName, List<Mutation> mutations) {
+            invalidateRows(tableName, mutations);
+            recordBreaker(true);
+            HbaseWriteCallback callback = bufferedWriteCallback;
+            if (null != callback) {
+                callback.onSuccess(tableName, mutations);
+            }
+        }
+
+        public void onFailure(String tableName, List<Mutation> mutations, IOException e) {
+            invalidateRows(tableName, mutations);
+            tableStateCache.onException(tableName, e);
+            recordBreaker(false);
+            HbaseWriteCallback callback = bufferedWriteCallback;
+            if (null != callback) {
+                callback.onFailure(tableName, mutations, e);
+            }
+        }
+    }
+
+    private HbaseBufferedWriter getBufferedWriter() {
+        if (null == bufferedWriter) {
+            synchronized (this) {
+                if (null == bufferedWriter) {
+                    HbaseBufferedWriter writer = new HbaseBufferedWriter(hbaseConfig, new RowCacheWriteCallback());
+                    if (0 != writer.init()) {
+                        logger.error("init buffered writer failed");
+                        writer.close();
+                        return null;
+                    }
+                    bufferedWriter = writer;
+                }
+            }
+        }
+        return bufferedWriter;
+    }
+
+    /*
+     * 异步写入，数据先进入缓冲队列，由后台线程批量写入hbase
+     * 返回0只表示入队成功，写入结果通过setBufferedWriteCallback设置的回调通知
+     */
+    public int bufferedPutRowByRowKey(String tableName, String rowkey, String columnFamily, String column, String value) {
+        return bufferedPutRowByRowKey(tableName, Bytes.toBytes(rowkey), HbaseColumn.of(columnFamily, column),
+                Bytes.toBytes(value));
+    }
+
+    public int bufferedPutRowByRowKey(String tableName, byte[] row, HbaseColumn column, byte[] value) {
+        Put put = new Put(row);
+        put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), value);
+        return bufferedMultiPut(tableName, put);
+    }
+
+    public int bufferedMultiPutRowByRowKey(String tableName, String rowkey,
+                                           String columnFamily, String[] columns, String[] values) {
+        int colNum = columns.length;
+        if (colNum != values.length) {
+            return -1;
+        }
+        Put put = new Put(Bytes.toBytes(rowkey));
+        for (int i = 0; i < colNum; ++i) {
+            HbaseColumn column = HbaseColumn.of(columnFamily, columns[i]);
+            put.addColumn(column.getFamilyBytes(), column.getQualifierBytes(), Bytes.toBytes(values[i]));
+        }
+        return bufferedMultiPut(tableName, put);
+    }
+
+    public int bufferedMultiPut(String tableName, Put put) {
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        HbaseBufferedWriter writer = getBufferedWriter();
+        if (null == writer) {
+            recordOperation(tableName, HbaseOperation.BUFFERED_PUT, startNanos, false);
+            return -1;
+        }
+        invalidateRow(tableName, put.getRow());
+        int ret = -1;
+        try {
+            ret = writer.mutate(tableName, put);
+        } finally {
+            // 写入缓冲不访问集群，刷新结果由写回调计入熔断
+            recordOperation(tableName, HbaseOperation.BUFFERED_PUT, startNanos, 0 == ret, false);
+        }
+        return ret;
+    }
+
+    /*
+     * 返回进入缓冲的条数，等于putList.size()表示全部入队；缓冲满时前面已入队的部分照常写入，
+     * 调用方只需重试putList中该下标之后的部分。熔断或写缓冲不可用时返回-1
+     */
+    public int bufferedMultiPut(String tableName, List<Put> putList) {
+        if (!allowRequest()) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        HbaseBufferedWriter writer = getBufferedWriter();
+        if (null == writer) {
+            recordOperation(tableName, HbaseOperation.BUFFERED_PUT, startNanos, false);
+            return -1;
+        }
+        invalidateRows(tableName, putList);
+        int ret = -1;
+        try {
+            ret = writer.mutate(tableName, putList);
+        } finally {
+            recordOperation(tableName, HbaseOperation.BUFFERED_PUT, startNanos, putList.size() == ret, false);
+        }
+        return ret;
+    }
+
+    /*
+     * 同步刷新异步写缓冲中的所有数据
+     */
+    public void flushBufferedPuts() {
+        HbaseBufferedWriter writer = bufferedWriter;
+        if (null != writer) {
+            writer.flush();
+        }
+    }
+
+    /*
+     * 异步接口：在有界线程池中执行对应的同步方法，返回的future结果与同步方法一致(失败时为null或-1)，
+     * 线程池排队已满、超时(hbase.async.timeout.millis)或取消时future以异常结束
+     */
+    public <T> HbaseSettableFuture<T> submitAsync(Callable<T> task, long timeoutMillis) {
+        return asyncExecutor.submit(task, timeoutMillis);
+    }
+
+    public HbaseSettableFuture<Result> getAsync(String tableName, String rowkey) {
+        return getAsync(tableName, rowkey, null);
+    }
+
+    public HbaseSettableFuture<Result> getAsync(final String tableName, final String rowkey, final String columnFamily) {
+        return submitAsync(new Callable<Result>() {
+            public Result call() {
+                return getRowByRowKey(tableName, rowkey, columnFamily);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<List<Result>> multiGetAsync(final String tableName, final String[] rowkeys) {
+        return submitAsync(new Callable<List<Result>>() {
+            public List<Result> call() {
+                return multiGetRowByRowKey(tableName, rowkeys);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Integer> putAsync(final String tableName, final String rowkey,
+                                                 final String columnFamily, final String column, final String value) {
+        return submitAsync(new Callable<Integer>() {
+            public Integer call() {
+                return putRowByRowKey(tableName, rowkey, columnFamily, column, value);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Integer> multiPutAsync(final String tableName, final String rowkey,
+                                                      final String columnFamily, final String[] columns,
+                                                      final String[] values) {
+        return submitAsync(new Callable<Integer>() {
+            public Integer call() {
+                return multiPutRowByRowKey(tableName, rowkey, columnFamily, columns, values);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Integer> multiPutRowsAsync(final String tableName, final String columnFamily,
+                                                          final String column, final String[] rowkeys,
+                                                          final String[] valueList) {
+        return submitAsync(new Callable<Integer>() {
+            public Integer call() {
+                return multiPutRowsByRowKey(tableName, columnFamily, column, rowkeys, valueList);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Integer> multiPutAsync(final String tableName, final List<Put> putList) {
+        return submitAsync(new Callable<Integer>() {
+            public Integer call() {
+                return multiPut(tableName, putList);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Void> deleteAsync(final String tableName, final String rowkey) {
+        return submitAsync(new Callable<Void>() {
+            public Void call() {
+                deleteRowByRowKey(tableName, rowkey);
+                return null;
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<Void> multiDeleteAsync(final String tableName, final String[] rowkeys) {
+        return submitAsync(new Callable<Void>() {
+            public Void call() {
+                multiDeleteRowByRowKey(tableName, rowkeys);
+                return null;
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    public HbaseSettableFuture<List<Result>> scanAsync(final String tableName, final String beginRow,
+                                                       final String endRow) {
+        return submitAsync(new Callable<List<Result>>() {
+            public List<Result> call() {
+                return scanRowByRange(tableName, beginRow, endRow);
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    /*
+     * 异步流式scan，handler在执行线程中调用，future结果为处理的行数；取消时扫描在下一行处停止
+     */
+    public HbaseSettableFuture<Long> scanAsync(final String tableName, final String columnFamily,
+                                               final String beginRow, final String endRow,
+                                               final HbaseRowHandler handler) {
+        return submitAsync(new Callable<Long>() {
+            public Long call() {
+                return scanRowByRange(tableName, columnFamily, beginRow, endRow, new HbaseRowHandler() {
+                    public boolean handle(Result result) {
+                        return !Thread.currentThread().isInterrupted() && handler.handle(result);
+                    }
+                });
+            }
+        }, hbaseConfig.getAsyncTimeoutMillis());
+    }
+
+    /*
+     * 进程退出前调用，刷新异步写，关闭后台线程和连接池
+     */
+    public void close() {
+        HbaseBufferedWriter writer = bufferedWriter;
+        if (null != writer) {
+            writer.close();
+            bufferedWriter = null;
+        }
+        if (null != parallelScanExecutor) {
+            parallelScanExecutor.shutdownNow();
+        }
+        if (null != getBatcher) {
+            getBatcher.close();
+            getBatchExecutor.shutdown();
+        }
+        if (null != asyncExecutor) {
+            asyncExecutor.close();
+        }
+        if (null != hedgedReader) {
+            hedgedReader.close();
+        }
+        if (null != batchExecutor) {
+            batchExecutor.shutdownNow();
+        }
+        if (null != connectionPool) {
+            connectionPool.close();
+        }
+        if (null != metrics) {
+            metrics.close();
         }
-        return list;
     }
 }
@@ -0,0 +1,175 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/*
+ * 对某一列的聚合结果：有值的行数、和、最小值、最大值
+ * LONG类型另外按long精确累加，getLongSum/getLongMin/getLongMax返回精确值，和溢出时getLongSum抛出ArithmeticException；
+ * double形式的getSum/getMin/getMax对所有类型都可用，超过2^53的值会损失精度。
+ * 无法解析的值不参与聚合，计入skippedCount
+ */
+
+public class HbaseAggregation {
+    /*
+     * 列值的编码方式
+     */
+    public enum ValueType {
+        // 十进制字符串，putRowByRowKey等String接口写入的值
+        STRING,
+        // Bytes.toBytes(long)写入的8字节
+        LONG,
+        // Bytes.toBytes(double)写入的8字节
+        DOUBLE
+    }
+
+    private final ValueType valueType;
+    private long count = 0L;
+    private long skippedCount = 0L;
+    private double sum = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    // 仅LONG类型
+    private long longSum = 0L;
+    private long longMin = 0L;
+    private long longMax = 0L;
+    private boolean longSumOverflow = false;
+
+    HbaseAggregation(ValueType valueType) {
+        this.valueType = valueType;
+    }
+
+    /*
+     * 调用方保证互斥
+     */
+    void add(byte[] value) {
+        if (null == value) {
+            return;
+        }
+        if (ValueType.LONG == valueType) {
+            if (Bytes.SIZEOF_LONG != value.length) {
+                ++skippedCount;
+                return;
+            }
+            addLong(Bytes.toLong(value));
+            return;
+        }
+        double number;
+        try {
+            number = decode(value);
+        } catch (RuntimeException e) {
+            ++skippedCount;
+            return;
+        }
+        addDouble(number);
+    }
+
+    private void addLong(long number) {
+        if (0 == count) {
+            longMin = number;
+            longMax = number;
+        } else {
+            longMin = Math.min(longMin, number);
+            longMax = Math.max(longMax, number);
+        }
+        if (!longSumOverflow) {
+            long result = longSum + number;
+            // 两个加数同号而结果异号时溢出
+            if (((longSum ^ result) & (number ^ result)) < 0) {
+                longSumOverflow = true;
+            } else {
+                longSum = result;
+            }
+        }
+        addDouble(number);
+    }
+
+    private void addDouble(double number) {
+        if (0 == count) {
+            min = number;
+            max = number;
+        } else {
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+        sum += number;
+        ++count;
+    }
+
+    private double decode(byte[] value) {
+        if (ValueType.DOUBLE == valueType) {
+            if (Bytes.SIZEOF_DOUBLE != value.length) {
+                throw new IllegalArgumentException("not a double value");
+            }
+            return Bytes.toDouble(value);
+        }
+        return Double.parseDouble(Bytes.toString(value).trim());
+    }
+
+    public ValueType getValueType() { return valueType; }
+    public long getCount() { return count; }
+    public long getSkippedCount() { return skippedCount; }
+    public double getSum() { return sum; }
+
+    /*
+     * 没有值时min/max/average为NaN
+     */
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    public double getAverage() {
+        if (0 == count) {
+            return Double.NaN;
+        }
+        if (ValueType.LONG == valueType && !longSumOverflow) {
+            return (double) longSum / count;
+        }
+        return sum / count;
+    }
+
+    /*
+     * LONG类型的精确和，超出long范围时抛出ArithmeticException
+     */
+    public long getLongSum() {
+        checkLong();
+        if (longSumOverflow) {
+            throw new ArithmeticException("long sum overflow");
+        }
+        return longSum;
+    }
+
+    public boolean isLongSumOverflow() { return longSumOverflow; }
+
+    /*
+     * LONG类型的精确最小值、最大值，没有值时抛出IllegalStateException
+     */
+    public long getLongMin() {
+        checkLong();
+        if (0 == count) {
+            throw new IllegalStateException("no value aggregated");
+        }
+        return longMin;
+    }
+
+    public long getLongMax() {
+        checkLong();
+        if (0 == count) {
+            throw new IllegalStateException("no value aggregated");
+        }
+        return longMax;
+    }
+
+    private void checkLong() {
+        if (ValueType.LONG != valueType) {
+            throw new IllegalStateException("value type is " + valueType + ", not LONG");
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (ValueType.LONG == valueType && count > 0) {
+            return "count:" + count + " sum:" + (longSumOverflow ? "overflow" : String.valueOf(longSum))
+                    + " min:" + longMin + " max:" + longMax + " skipped:" + skippedCount;
+        }
+        return "count:" + count + " sum:" + sum + " min:" + min + " max:" + max + " skipped:" + skippedCount;
+    }
+}
@@ -0,0 +1,124 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * 异步操作执行器
+ * 有界线程池+有界等待队列，队列满时立即以RejectedExecutionException失败而不是阻塞调用方；
+ * 支持超时(超时后future以TimeoutException失败)和取消。超时或取消时还在排队的任务不再执行，
+ * 已在执行的任务不中断(hbase 1.0由调用线程写rpc socket，中断会关闭到region server的连接，
+ * 让同一Connection上的其它请求失败)，执行完归还连接，结果丢弃
+ */
+
+public class HbaseAsyncExecutor {
+    private static final Logger logger = LogManager.getLogger(HbaseAsyncExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timeoutScheduler;
+
+    public HbaseAsyncExecutor(int threads, int queueSize) {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new HbaseThreadFactory("hbase-async"));
+        executor.allowCoreThreadTimeOut(true);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new HbaseThreadFactory("hbase-async-timeout"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        timeoutScheduler = scheduler;
+    }
+
+    /*
+     * timeoutMillis<=0表示不设超时
+     */
+    public <T> HbaseSettableFuture<T> submit(final Callable<T> task, long timeoutMillis) {
+        final AsyncFuture<T> future = new AsyncFuture<T>();
+        try {
+            future.worker = executor.submit(new Runnable() {
+                public void run() {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.set(task.call());
+                    } catch (Exception e) {
+                        future.setException(e);
+                    } catch (Error e) {
+                        future.setException(e);
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("async executor is saturated. active:" + executor.getActiveCount()
+                    + " queued:" + executor.getQueue().size());
+            future.setException(e);
+            return future;
+        }
+        if (timeoutMillis > 0 && !future.isDone()) {
+            future.timeout = timeoutScheduler.schedule(new Runnable() {
+                public void run() {
+                    if (future.setException(new TimeoutException("hbase async operation timeout"))) {
+                        future.cancelWorker();
+                    }
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+        timeoutScheduler.shutdownNow();
+    }
+
+    /*
+     * 取消时同时取消排队中的任务和超时定时器，mayInterruptIfRunning只影响future本身的状态，不中断执行线程
+     */
+    private static class AsyncFuture<T> extends HbaseSettableFuture<T> {
+        volatile Future<?> worker = null;
+        volatile Future<?> timeout = null;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning)) {
+                return false;
+            }
+            cancelWorker();
+            return true;
+        }
+
+        @Override
+        protected void complete() {
+            Future<?> t = timeout;
+            if (null != t) {
+                t.cancel(false);
+            }
+            super.complete();
+        }
+
+        void cancelWorker() {
+            Future<?> w = worker;
+            if (null != w) {
+                w.cancel(false);
+            }
+        }
+    }
+}
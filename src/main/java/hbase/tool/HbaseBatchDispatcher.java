@@ -0,0 +1,270 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+ * 大批量get/put的分块并发执行
+ * 按rowkey所在的region server分组，每组再按chunkSize切块，各块在有界线程池中并发执行，
+ * 每块从连接池借一个连接，用table.batch发出，逐条记录结果或异常；单块失败不影响其它块
+ */
+
+public class HbaseBatchDispatcher {
+    private static final Logger logger = LogManager.getLogger(HbaseBatchDispatcher.class);
+
+    private final HbaseConnectionPool connectionPool;
+    private final HbaseTableStateCache tableStateCache;
+    private final ExecutorService executor;
+    // 每块的最大条数，<=0表示不切块
+    private final int chunkSize;
+
+    public HbaseBatchDispatcher(HbaseConnectionPool connectionPool, HbaseTableStateCache tableStateCache,
+                                ExecutorService executor, int chunkSize) {
+        this.connectionPool = connectionPool;
+        this.tableStateCache = tableStateCache;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /*
+     * 超过一块的批量才需要切块并发
+     */
+    public boolean shouldSplit(int size) {
+        return chunkSize > 0 && size > chunkSize;
+    }
+
+    public HbaseBatchResult<Result> get(String tableName, List<Get> gets) throws IOException {
+        return get(tableName, gets, null);
+    }
+
+    /*
+     * sent不为null时，通过表状态检查、借到连接、开始发往集群后sent[0]置为true；
+     * 抛出异常而sent[0]为false表示表未启用或借不到连接，请求没有到达集群
+     */
+    public HbaseBatchResult<Result> get(String tableName, List<Get> gets, boolean[] sent) throws IOException {
+        return dispatch(tableName, gets, true, sent);
+    }
+
+    /*
+     * put/delete，成功条目的结果为null
+     */
+    public HbaseBatchResult<Void> mutate(String tableName, List<? extends Row> actions) throws IOException {
+        return mutate(tableName, actions, null);
+    }
+
+    public HbaseBatchResult<Void> mutate(String tableName, List<? extends Row> actions, boolean[] sent)
+            throws IOException {
+        return dispatch(tableName, actions, false, sent);
+    }
+
+    /*
+     * 表未启用、借不到连接或被中断时整体失败抛出异常，其余失败记录在对应条目上
+     */
+    private <T> HbaseBatchResult<T> dispatch(String tableName, List<? extends Row> actions, boolean keepResults,
+                                             boolean[] sent) throws IOException {
+        TableName tabName = HbaseTableNames.valueOf(tableName);
+        HbaseBatchResult<T> batchResult = new HbaseBatchResult<T>(actions.size());
+        if (actions.isEmpty()) {
+            return batchResult;
+        }
+        List<int[]> chunks = split(tableName, tabName, actions);
+        if (null != sent) {
+            sent[0] = true;
+        }
+        if (1 == chunks.size()) {
+            runChunk(tabName, actions, chunks.get(0), batchResult, keepResults);
+            return batchResult;
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(chunks.size());
+        try {
+            for (int[] chunk : chunks) {
+                futures.add(submitChunk(tabName, actions, chunk, batchResult, keepResults));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("batch dispatch interrupted");
+        } catch (ExecutionException e) {
+            // runChunk自己记录所有异常，这里不会发生
+            throw new IOException("batch chunk failed", e.getCause());
+        } finally {
+            // 只在被中断时有未完成的块：排队中的不再执行，执行中的table.batch不中断，
+            // 中断会关闭到region server的rpc连接，让同一Connection上的其它请求失败
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return batchResult;
+    }
+
+    private <T> Future<?> submitChunk(final TableName tabName, final List<? extends Row> actions, final int[] chunk,
+                                      final HbaseBatchResult<T> batchResult, final boolean keepResults) {
+        Runnable task = new Runnable() {
+            public void run() {
+                runChunk(tabName, actions, chunk, batchResult, keepResults);
+            }
+        };
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，在调用线程执行
+            HbaseSettableFuture<Void> done = new HbaseSettableFuture<Void>();
+            task.run();
+            done.set(null);
+            return done;
+        }
+    }
+
+    /*
+     * 检查表状态并按region server分组切块，返回每块包含的请求下标
+     */
+    private List<int[]> split(String tableName, TableName tabName, List<? extends Row> actions) throws IOException {
+        HbaseConnection conn = connectionPool.getConnection();
+        if (null == conn) {
+            throw new IOException("get connection from pool failed");
+        }
+        try {
+            if (!tableStateCache.isTableEnabled(conn.getConnection(), tabName)) {
+                throw new IOException("table " + tableName + " in hbase is not enable");
+            }
+            if (!shouldSplit(actions.size())) {
+                return chunk(allIndexes(actions.size()));
+            }
+            Map<ServerName, List<Integer>> groups = groupByServer(conn, tabName, actions);
+            List<int[]> chunks = new ArrayList<int[]>();
+            for (List<Integer> group : groups.values()) {
+                chunks.addAll(chunk(group));
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("batch of " + actions.size() + " on table " + tableName + " split into "
+                        + chunks.size() + " chunks over " + groups.size() + " region servers");
+            }
+            return chunks;
+        } catch (IOException e) {
+            tableStateCache.onException(tableName, e);
+            throw e;
+        } finally {
+            connectionPool.releaseConnection(conn);
+        }
+    }
+
+    /*
+     * region位置来自Connection的meta缓存，通常不发rpc；定位失败时不分组
+     */
+    private Map<ServerName, List<Integer>> groupByServer(HbaseConnection conn, TableName tabName,
+                                                        List<? extends Row> actions) {
+        Map<ServerName, List<Integer>> groups = new LinkedHashMap<ServerName, List<Integer>>();
+        try {
+            RegionLocator locator = conn.getConnection().getRegionLocator(tabName);
+            try {
+                for (int i = 0; i < actions.size(); ++i) {
+                    HRegionLocation location = locator.getRegionLocation(actions.get(i).getRow());
+                    ServerName server = null == location ? null : location.getServerName();
+                    List<Integer> group = groups.get(server);
+                    if (null == group) {
+                        group = new ArrayList<Integer>();
+                        groups.put(server, group);
+                    }
+                    group.add(i);
+                }
+            } finally {
+                locator.close();
+            }
+        } catch (IOException e) {
+            logger.warn("locate regions for batch failed, dispatch without grouping. exception:" + e.getMessage());
+            groups.clear();
+            groups.put(null, allIndexes(actions.size()));
+        }
+        return groups;
+    }
+
+    private static List<Integer> allIndexes(int size) {
+        List<Integer> indexes = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; ++i) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private List<int[]> chunk(List<Integer> indexes) {
+        int size = chunkSize > 0 ? chunkSize : indexes.size();
+        List<int[]> chunks = new ArrayList<int[]>((indexes.size() + size - 1) / size);
+        for (int from = 0; from < indexes.size(); from += size) {
+            int[] chunk = new int[Math.min(size, indexes.size() - from)];
+            for (int i = 0; i < chunk.length; ++i) {
+                chunk[i] = indexes.get(from + i);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /*
+     * 一块用一个池化连接执行，table.batch把每条的结果或异常填入out
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void runChunk(TableName tabName, List<? extends Row> actions, int[] chunk,
+                              HbaseBatchResult<T> batchResult, boolean keepResults) {
+        List<Row> rows = new ArrayList<Row>(chunk.length);
+        for (int index : chunk) {
+            rows.add(actions.get(index));
+        }
+        Object[] out = new Object[chunk.length];
+        Throwable chunkError = null;
+        HbaseConnection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            if (null == conn) {
+                chunkError = new IOException("get connection from pool failed");
+            } else {
+                conn.getTable(tabName).batch(rows, out);
+            }
+        } catch (IOException e) {
+            // 部分失败时out中已经填好每条的结果，失败的条目是异常
+            chunkError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunkError = new InterruptedIOException("batch chunk interrupted");
+        } catch (RuntimeException e) {
+            chunkError = e;
+        } finally {
+            if (null != conn) {
+                connectionPool.releaseConnection(conn);
+            }
+        }
+        for (int i = 0; i < chunk.length; ++i) {
+            Object result = out[i];
+            if (result instanceof Throwable) {
+                batchResult.setError(chunk[i], (Throwable) result);
+            } else if (null == result) {
+                batchResult.setError(chunk[i], null != chunkError ? chunkError : new IOException("no result"));
+            } else if (keepResults) {
+                batchResult.setResult(chunk[i], (T) result);
+            }
+        }
+        if (null != chunkError) {
+            logger.warn("batch chunk of " + chunk.length + " failed partially. exception:" + chunkError.getMessage());
+        }
+    }
+}
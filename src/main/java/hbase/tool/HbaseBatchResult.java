@@ -0,0 +1,97 @@
+package hbase.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 批量操作的逐条结果，下标与请求列表一致
+ * 成功的条目getResult返回结果(put/delete为null)，失败的条目getError返回该条的异常
+ */
+
+public class HbaseBatchResult<T> {
+    private final Object[] results;
+    private final Throwable[] errors;
+
+    HbaseBatchResult(int size) {
+        this.results = new Object[size];
+        this.errors = new Throwable[size];
+    }
+
+    void setResult(int index, T result) {
+        results[index] = result;
+    }
+
+    void setError(int index, Throwable error) {
+        errors[index] = error;
+    }
+
+    public int size() {
+        return results.length;
+    }
+
+    public boolean isSuccess() {
+        for (Throwable error : errors) {
+            if (null != error) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isSuccess(int index) {
+        return null == errors[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getResult(int index) {
+        return (T) results[index];
+    }
+
+    public Throwable getError(int index) {
+        return errors[index];
+    }
+
+    public int getFailureCount() {
+        int count = 0;
+        for (Throwable error : errors) {
+            if (null != error) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public List<Integer> getFailedIndexes() {
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int i = 0; i < errors.length; ++i) {
+            if (null != errors[i]) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    /*
+     * 第一个失败条目的异常，全部成功时返回null
+     */
+    public Throwable getFirstError() {
+        for (Throwable error : errors) {
+            if (null != error) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * 按请求顺序的结果，失败的条目为null
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getResults() {
+        List<T> list = new ArrayList<T>(results.length);
+        for (Object result : results) {
+            list.add((T) result);
+        }
+        return list;
+    }
+}
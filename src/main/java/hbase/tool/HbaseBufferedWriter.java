@@ -0,0 +1,252 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * 基于BufferedMutator的异步批量写
+ * 每张表一个有界缓冲队列，写入方只入队；队列达到批量大小或者到达刷新间隔时由后台线程批量写入hbase，
+ * 队列满时写入方最多等待waitTimeMillis(背压)，每一批写完回调HbaseWriteCallback
+ */
+
+public class HbaseBufferedWriter {
+    private static final Logger logger = LogManager.getLogger(HbaseBufferedWriter.class);
+
+    private final HbaseConfig config;
+    private volatile HbaseWriteCallback callback;
+    private final ConcurrentMap<TableName, TableBuffer> tableBuffers = new ConcurrentHashMap<TableName, TableBuffer>();
+    // 写入专用连接，BufferedMutator长期持有，不占用连接池
+    private HbaseConnection writerConnection = null;
+    private ScheduledExecutorService flushExecutor = null;
+    private volatile boolean closed = false;
+
+    public HbaseBufferedWriter(HbaseConfig config, HbaseWriteCallback callback) {
+        this.config = config;
+        this.callback = callback;
+    }
+
+    public int init() {
+        writerConnection = new HbaseConnection();
+        if (0 != writerConnection.initConnection(config)) {
+            logger.error("init buffered writer connection failed");
+            return -1;
+        }
+        flushExecutor = new ScheduledThreadPoolExecutor(config.getWriteFlushThreads(),
+                new HbaseThreadFactory("hbase-buffered-writer"));
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                flushAll(true);
+            }
+        }, config.getWriteFlushIntervalMillis(), config.getWriteFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        return 0;
+    }
+
+    public void setCallback(HbaseWriteCallback callback) {
+        this.callback = callback;
+    }
+
+    /*
+     * 入队一条写请求，缓冲队列满时最多等待waitTimeMillis，超时或已关闭返回-1
+     */
+    public int mutate(String tableName, Mutation mutation) {
+        if (closed) {
+            logger.warn("buffered writer is closed");
+            return -1;
+        }
+        TableBuffer buffer = getTableBuffer(tableName);
+        try {
+            if (!buffer.queue.offer(mutation, config.getWaitTimeMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("write buffer of table " + tableName + " is full");
+                return -1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        if (closed) {
+            // 入队与close并发：close最后一次刷新之后入队的数据不会再被写入，取回成功说明没有被刷新
+            if (buffer.queue.remove(mutation)) {
+                logger.warn("buffered writer is closed");
+                return -1;
+            }
+            return 0;
+        }
+        if (buffer.queue.size() >= config.getWriteBatchSize()) {
+            scheduleFlush(buffer);
+        }
+        return 0;
+    }
+
+    /*
+     * 按顺序逐条入队，返回入队成功的条数，等于mutations.size()表示全部入队。
+     * 遇到队列满或已关闭时停止，此前入队的数据照常写入，调用方只需处理(重试)后面的部分
+     */
+    public int mutate(String tableName, List<? extends Mutation> mutations) {
+        int accepted = 0;
+        for (Mutation mutation : mutations) {
+            if (0 != mutate(tableName, mutation)) {
+                break;
+            }
+            ++accepted;
+        }
+        return accepted;
+    }
+
+    /*
+     * 同步刷新所有表的缓冲数据
+     */
+    public void flush() {
+        flushAll(true);
+    }
+
+    public void close() {
+        closed = true;
+        if (null != flushExecutor) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(config.getWriteFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushAll(true);
+        for (TableBuffer buffer : tableBuffers.values()) {
+            buffer.closeMutator();
+        }
+        tableBuffers.clear();
+        if (null != writerConnection) {
+            try {
+                writerConnection.releaseConnection();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private TableBuffer getTableBuffer(String tableName) {
+        TableName tabName = HbaseTableNames.valueOf(tableName);
+        TableBuffer buffer = tableBuffers.get(tabName);
+        if (null == buffer) {
+            buffer = new TableBuffer(tableName, tabName, config.getWriteBufferCapacity());
+            TableBuffer exist = tableBuffers.putIfAbsent(tabName, buffer);
+            if (null != exist) {
+                buffer = exist;
+            }
+        }
+        return buffer;
+    }
+
+    private void scheduleFlush(final TableBuffer buffer) {
+        if (!buffer.flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutor.execute(new Runnable() {
+                public void run() {
+                    buffer.flushScheduled.set(false);
+                    buffer.flush(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 正在关闭，数据由close的最后一次刷新写入
+            buffer.flushScheduled.set(false);
+        }
+    }
+
+    private void flushAll(boolean drainAll) {
+        for (TableBuffer buffer : tableBuffers.values()) {
+            buffer.flush(drainAll);
+        }
+    }
+
+    private class TableBuffer {
+        final String tableName;
+        final TableName tabName;
+        final BlockingQueue<Mutation> queue;
+        final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+        BufferedMutator mutator = null;
+
+        TableBuffer(String tableName, TableName tabName, int capacity) {
+            this.tableName = tableName;
+            this.tabName = tabName;
+            this.queue = new ArrayBlockingQueue<Mutation>(capacity);
+        }
+
+        /*
+         * 按批量大小分批写入，每批一次回调；drainAll为false时不足一批的数据留给定时刷新
+         */
+        synchronized void flush(boolean drainAll) {
+            int batchSize = config.getWriteBatchSize();
+            while (drainAll ? !queue.isEmpty() : queue.size() >= batchSize) {
+                List<Mutation> batch = new ArrayList<Mutation>(Math.min(queue.size(), batchSize));
+                queue.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                writeBatch(batch);
+            }
+        }
+
+        private void writeBatch(List<Mutation> batch) {
+            HbaseWriteCallback cb = callback;
+            try {
+                if (null == mutator) {
+                    if (writerConnection.isClosed()) {
+                        throw new IOException("buffered writer is closed");
+                    }
+                    BufferedMutatorParams params = new BufferedMutatorParams(tabName)
+                            .writeBufferSize(config.getWriteBufferSizeBytes());
+                    mutator = writerConnection.getConnection().getBufferedMutator(params);
+                }
+                mutator.mutate(batch);
+                mutator.flush();
+            } catch (IOException e) {
+                logger.error("buffered write failed. table:" + tableName + " batch size:" + batch.size()
+                        + " exception:" + e.getMessage());
+                if (null != cb) {
+                    try {
+                        cb.onFailure(tableName, batch, e);
+                    } catch (RuntimeException ce) {
+                        logger.warn("buffered write failure callback exception:" + ce.getMessage());
+                    }
+                }
+                return;
+            }
+            if (null != cb) {
+                try {
+                    cb.onSuccess(tableName, batch);
+                } catch (RuntimeException ce) {
+                    logger.warn("buffered write success callback exception:" + ce.getMessage());
+                }
+            }
+        }
+
+        synchronized void closeMutator() {
+            if (null != mutator) {
+                try {
+                    mutator.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                mutator = null;
+            }
+        }
+    }
+}
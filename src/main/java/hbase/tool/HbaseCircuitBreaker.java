@@ -0,0 +1,208 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * 集群级熔断器
+ * CLOSED: 正常放行，按时间窗口统计调用失败率，窗口内调用数达到minimumCalls且失败率达到阈值时打开；
+ *         健康检查连续失败达到阈值时也直接打开
+ * OPEN: 所有请求立即失败，openMillis后进入HALF_OPEN；打开期间健康检查成功则提前进入HALF_OPEN
+ * HALF_OPEN: 只放行halfOpenCalls个试探请求，全部成功则关闭，任何一个失败则重新打开；
+ *            试探请求openMillis内没有全部返回结果时重新发放试探名额，避免一直停在HALF_OPEN
+ * 放行后没有访问集群的请求(命中缓存、合并到其它请求等)调用onIgnored，归还试探名额，不计入统计
+ * 状态切换和计数都是CAS，判断是否放行不加锁
+ */
+
+public class HbaseCircuitBreaker implements HbaseCircuitBreakerMXBean {
+    private static final Logger logger = LogManager.getLogger(HbaseCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long windowMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final int healthCheckFailureThreshold;
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong windowCalls = new AtomicLong(0);
+    private final AtomicLong windowFailures = new AtomicLong(0);
+    private volatile long openUntil = 0;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger(0);
+    private final AtomicLong halfOpenUntil = new AtomicLong(0);
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong openedCount = new AtomicLong(0);
+
+    public HbaseCircuitBreaker(HbaseConfig config) {
+        this.failureRateThreshold = config.getCircuitBreakerFailureRate();
+        this.minimumCalls = config.getCircuitBreakerMinimumCalls();
+        this.windowMillis = config.getCircuitBreakerWindowMillis();
+        this.openMillis = config.getCircuitBreakerOpenMillis();
+        this.halfOpenCalls = Math.max(1, config.getCircuitBreakerHalfOpenCalls());
+        this.healthCheckFailureThreshold = config.getCircuitBreakerHealthCheckFailures();
+    }
+
+    /*
+     * 是否放行本次请求，放行的请求必须再调用onSuccess、onFailure或onIgnored之一
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (State.CLOSED == current) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (State.OPEN == current) {
+            if (now < openUntil) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            halfOpen(now);
+        }
+        if (tryAcquirePermit()) {
+            return true;
+        }
+        long deadline = halfOpenUntil.get();
+        if (State.HALF_OPEN == state.get() && now >= deadline
+                && halfOpenUntil.compareAndSet(deadline, now + openMillis)) {
+            // 上一轮试探请求没有全部返回结果(调用方异常退出等)，重新开始一轮
+            halfOpenSuccesses.set(0);
+            halfOpenPermits.set(halfOpenCalls);
+            logger.warn("hbase circuit breaker half open trial timed out, restart trial");
+            if (tryAcquirePermit()) {
+                return true;
+            }
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    private boolean tryAcquirePermit() {
+        int permits;
+        do {
+            permits = halfOpenPermits.get();
+            if (permits <= 0) {
+                return false;
+            }
+        } while (!halfOpenPermits.compareAndSet(permits, permits - 1));
+        return true;
+    }
+
+    /*
+     * 放行的请求没有访问集群，半开时归还试探名额
+     */
+    public void onIgnored() {
+        if (State.HALF_OPEN == state.get() && halfOpenPermits.get() < halfOpenCalls) {
+            halfOpenPermits.incrementAndGet();
+        }
+    }
+
+    public void onSuccess() {
+        State current = state.get();
+        if (State.CLOSED == current) {
+            record(false);
+        } else if (State.HALF_OPEN == current && halfOpenSuccesses.incrementAndGet() >= halfOpenCalls) {
+            if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                resetWindow(System.currentTimeMillis());
+                logger.info("hbase circuit breaker closed");
+            }
+        }
+    }
+
+    public void onFailure() {
+        State current = state.get();
+        if (State.CLOSED == current) {
+            record(true);
+        } else if (State.HALF_OPEN == current) {
+            open(State.HALF_OPEN, "trial request failed");
+        }
+    }
+
+    /*
+     * 连接池健康检查结果，consecutiveFailures为连续失败次数
+     */
+    public void onHealthCheck(boolean healthy, int consecutiveFailures) {
+        State current = state.get();
+        if (healthy) {
+            if (State.OPEN == current) {
+                openUntil = 0;
+            }
+        } else if (healthCheckFailureThreshold > 0 && consecutiveFailures >= healthCheckFailureThreshold) {
+            if (State.OPEN == current) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            } else {
+                open(current, "health check failed " + consecutiveFailures + " times");
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= windowMillis && windowStart.compareAndSet(start, now)) {
+            windowCalls.set(0);
+            windowFailures.set(0);
+        }
+        long calls = windowCalls.incrementAndGet();
+        if (!failure) {
+            return;
+        }
+        long failures = windowFailures.incrementAndGet();
+        if (calls >= minimumCalls && failures >= calls * failureRateThreshold) {
+            open(State.CLOSED, "failure rate " + failures + "/" + calls);
+        }
+    }
+
+    private void open(State from, String reason) {
+        openUntil = System.currentTimeMillis() + openMillis;
+        if (state.compareAndSet(from, State.OPEN)) {
+            openedCount.incrementAndGet();
+            logger.warn("hbase circuit breaker opened. reason: " + reason);
+        }
+    }
+
+    private void halfOpen(long now) {
+        if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            halfOpenSuccesses.set(0);
+            halfOpenUntil.set(now + openMillis);
+            halfOpenPermits.set(halfOpenCalls);
+            logger.info("hbase circuit breaker half open");
+        }
+    }
+
+    private void resetWindow(long now) {
+        windowStart.set(now);
+        windowCalls.set(0);
+        windowFailures.set(0);
+    }
+
+    public State getCurrentState() {
+        return state.get();
+    }
+
+    public String getState() {
+        return state.get().name();
+    }
+
+    public double getFailureRate() {
+        long calls = windowCalls.get();
+        return 0 == calls ? 0 : (double) windowFailures.get() / calls;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+}
@@ -0,0 +1,15 @@
+package hbase.tool;
+
+/*
+ * 熔断器状态和统计
+ */
+
+public interface HbaseCircuitBreakerMXBean {
+    String getState();
+
+    double getFailureRate();
+
+    long getRejectedCount();
+
+    long getOpenedCount();
+}
@@ -0,0 +1,277 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * 多集群注册表
+ * 每个集群一个独立的HbaseAdapter(独立的连接池、线程池、缓存、熔断器和指标)，一个集群变慢不会占用其他集群的资源；
+ * 表按路由规则映射到集群：精确表名优先，其次是最长匹配的前缀规则(以*结尾，如ns1:*)，都不匹配时使用默认集群；
+ * 配置了备集群的集群可以通过routeFailover取得主备读切换的adapter
+ */
+
+public class HbaseClusterRegistry {
+    private static final Logger logger = LogManager.getLogger(HbaseClusterRegistry.class);
+    private static final String PREFIX_WILDCARD = "*";
+
+    private final ConcurrentHashMap<String, HbaseAdapter> adapters = new ConcurrentHashMap<String, HbaseAdapter>();
+    // 集群名 -> 以该集群为主集群的主备读切换adapter
+    private final ConcurrentHashMap<String, HbaseFailoverAdapter> failoverAdapters =
+            new ConcurrentHashMap<String, HbaseFailoverAdapter>();
+    private final ConcurrentHashMap<String, String> tableRoutes = new ConcurrentHashMap<String, String>();
+    // 前缀规则按前缀长度从长到短排列，修改时整体替换
+    private volatile List<PrefixRoute> prefixRoutes = Collections.emptyList();
+    private volatile String defaultCluster = null;
+    private static HbaseClusterRegistry registry = null;
+
+    public static HbaseClusterRegistry getInstance() {
+        if (null == registry) {
+            synchronized (HbaseClusterRegistry.class) {
+                if (null == registry) {
+                    registry = new HbaseClusterRegistry();
+                }
+            }
+        }
+        return registry;
+    }
+
+    /*
+     * 按集群配置文件初始化所有集群，格式：
+     * hbase.clusters=online,offline
+     * hbase.cluster.default=online
+     * hbase.cluster.online.conf=./conf/hbase-conf.properties
+     * hbase.cluster.online.tables=user_profile,ns1:*
+     * hbase.cluster.online.standby=offline
+     * 任一集群初始化失败时关闭已初始化的集群并返回-1
+     */
+    public int init(String fileName) {
+        Properties props = new Properties();
+        try {
+            FileInputStream in = new FileInputStream(fileName);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            logger.fatal("file not found. file name :" + fileName);
+            return -1;
+        } catch (IOException e) {
+            e.printStackTrace();
+            logger.fatal("properties load cluster config file failed");
+            return -1;
+        }
+
+        String clusters = props.getProperty("hbase.clusters");
+        if (null == clusters || clusters.trim().isEmpty()) {
+            logger.fatal("hbase.clusters is not configured");
+            return -1;
+        }
+        for (String clusterName : clusters.split(",")) {
+            clusterName = clusterName.trim();
+            if (clusterName.isEmpty()) {
+                continue;
+            }
+            String confFile = props.getProperty("hbase.cluster." + clusterName + ".conf");
+            if (null == confFile || 0 != register(clusterName, confFile.trim())) {
+                logger.fatal("init hbase cluster failed. cluster:" + clusterName);
+                close();
+                return -1;
+            }
+            String tables = props.getProperty("hbase.cluster." + clusterName + ".tables");
+            if (null != tables) {
+                for (String table : tables.split(",")) {
+                    if (!table.trim().isEmpty()) {
+                        addRoute(table.trim(), clusterName);
+                    }
+                }
+            }
+        }
+        for (String clusterName : getClusterNames()) {
+            String standbyName = props.getProperty("hbase.cluster." + clusterName + ".standby");
+            if (null != standbyName && 0 != setStandby(clusterName, standbyName.trim())) {
+                close();
+                return -1;
+            }
+        }
+        String defaultName = props.getProperty("hbase.cluster.default");
+        if (null != defaultName) {
+            setDefaultCluster(defaultName.trim());
+        }
+        return 0;
+    }
+
+    public int register(String clusterName, String confFileName) {
+        HbaseAdapter adapter = new HbaseAdapter(clusterName);
+        if (0 != adapter.init(confFileName)) {
+            adapter.close();
+            return -1;
+        }
+        return register(adapter);
+    }
+
+    public int register(String clusterName, HbaseConfig hbaseConfig) {
+        HbaseAdapter adapter = new HbaseAdapter(clusterName);
+        if (0 != adapter.init(hbaseConfig)) {
+            adapter.close();
+            return -1;
+        }
+        return register(adapter);
+    }
+
+    private int register(HbaseAdapter adapter) {
+        String clusterName = adapter.getClusterName();
+        if (null != adapters.putIfAbsent(clusterName, adapter)) {
+            logger.error("hbase cluster is already registered. cluster:" + clusterName);
+            adapter.close();
+            return -1;
+        }
+        synchronized (this) {
+            // 第一个注册的集群作为默认集群
+            if (null == defaultCluster) {
+                defaultCluster = clusterName;
+            }
+        }
+        logger.info("hbase cluster registered. cluster:" + clusterName);
+        return 0;
+    }
+
+    /*
+     * 关闭并移除集群，指向该集群的路由规则保留，路由到该集群的表在重新注册前找不到集群
+     */
+    public void unregister(String clusterName) {
+        for (Map.Entry<String, HbaseFailoverAdapter> entry : failoverAdapters.entrySet()) {
+            HbaseFailoverAdapter failover = entry.getValue();
+            if (failover.getPrimary().getClusterName().equals(clusterName)
+                    || failover.getStandby().getClusterName().equals(clusterName)) {
+                failoverAdapters.remove(entry.getKey(), failover);
+            }
+        }
+        HbaseAdapter adapter = adapters.remove(clusterName);
+        if (null != adapter) {
+            adapter.close();
+        }
+    }
+
+    /*
+     * 为集群指定备集群，读请求在主集群不可用或变慢时切到备集群，切换参数使用主集群配置中的hbase.failover.*
+     */
+    public int setStandby(String clusterName, String standbyClusterName) {
+        HbaseAdapter primary = adapters.get(clusterName);
+        HbaseAdapter standby = adapters.get(standbyClusterName);
+        if (null == primary || null == standby || primary == standby) {
+            logger.error("invalid standby cluster. cluster:" + clusterName + " standby:" + standbyClusterName);
+            return -1;
+        }
+        failoverAdapters.put(clusterName, new HbaseFailoverAdapter(primary, standby));
+        return 0;
+    }
+
+    /*
+     * 表所在集群的主备读切换adapter，该集群没有配置备集群时返回null
+     */
+    public HbaseFailoverAdapter routeFailover(String tableName) {
+        String clusterName = routeCluster(tableName);
+        return null == clusterName ? null : failoverAdapters.get(clusterName);
+    }
+
+    /*
+     * tablePattern为表名，或以*结尾的前缀(如ns1:*、log_*)
+     */
+    public synchronized void addRoute(String tablePattern, String clusterName) {
+        if (!tablePattern.endsWith(PREFIX_WILDCARD)) {
+            tableRoutes.put(tablePattern, clusterName);
+            return;
+        }
+        String prefix = tablePattern.substring(0, tablePattern.length() - PREFIX_WILDCARD.length());
+        List<PrefixRoute> routes = new ArrayList<PrefixRoute>(prefixRoutes.size() + 1);
+        for (PrefixRoute route : prefixRoutes) {
+            if (!route.prefix.equals(prefix)) {
+                routes.add(route);
+            }
+        }
+        routes.add(new PrefixRoute(prefix, clusterName));
+        Collections.sort(routes, new Comparator<PrefixRoute>() {
+            public int compare(PrefixRoute o1, PrefixRoute o2) {
+                return o2.prefix.length() - o1.prefix.length();
+            }
+        });
+        prefixRoutes = routes;
+    }
+
+    public void setDefaultCluster(String clusterName) {
+        defaultCluster = clusterName;
+    }
+
+    public String getDefaultCluster() {
+        return defaultCluster;
+    }
+
+    /*
+     * 表所在的集群名，没有匹配的规则且没有默认集群时返回null
+     */
+    public String routeCluster(String tableName) {
+        String clusterName = tableRoutes.get(tableName);
+        if (null != clusterName) {
+            return clusterName;
+        }
+        for (PrefixRoute route : prefixRoutes) {
+            if (tableName.startsWith(route.prefix)) {
+                return route.clusterName;
+            }
+        }
+        return defaultCluster;
+    }
+
+    /*
+     * 表所在集群的adapter，找不到时返回null
+     */
+    public HbaseAdapter route(String tableName) {
+        String clusterName = routeCluster(tableName);
+        HbaseAdapter adapter = null == clusterName ? null : adapters.get(clusterName);
+        if (null == adapter) {
+            logger.error("no hbase cluster for table " + tableName + ". cluster:" + clusterName);
+        }
+        return adapter;
+    }
+
+    public HbaseAdapter getAdapter(String clusterName) {
+        return adapters.get(clusterName);
+    }
+
+    public Set<String> getClusterNames() {
+        return Collections.unmodifiableSet(adapters.keySet());
+    }
+
+    /*
+     * 进程退出前调用，关闭所有集群
+     */
+    public void close() {
+        for (String clusterName : new ArrayList<String>(adapters.keySet())) {
+            unregister(clusterName);
+        }
+    }
+
+    private static class PrefixRoute {
+        final String prefix;
+        final String clusterName;
+
+        PrefixRoute(String prefix, String clusterName) {
+            this.prefix = prefix;
+            this.clusterName = clusterName;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 列描述：列簇+列名(qualifier为null表示整个列簇)，同时保存字符串和UTF-8编码后的字节
+ * family/of按名字缓存实例，同一列只编码一次，建议定义为常量使用；
+ * 缓存个数有上限，列名动态生成的场景请直接用byte[]构造，不进入缓存，字符串形式在第一次使用时才解码。
+ * 返回的字节数组是共享的，调用方不能修改
+ */
+
+public final class HbaseColumn {
+    private static final int MAX_INTERNED = 10000;
+    private static final ConcurrentMap<String, ConcurrentMap<String, HbaseColumn>> INTERNED =
+            new ConcurrentHashMap<String, ConcurrentMap<String, HbaseColumn>>();
+    private static final ConcurrentMap<String, HbaseColumn> FAMILIES = new ConcurrentHashMap<String, HbaseColumn>();
+    private static final AtomicInteger internedCount = new AtomicInteger(0);
+
+    // byte[]构造时为null，getFamily/getQualifier第一次调用时解码
+    private volatile String family;
+    private volatile String qualifier;
+    private final byte[] familyBytes;
+    private final byte[] qualifierBytes;
+
+    private HbaseColumn(String family, String qualifier, byte[] familyBytes, byte[] qualifierBytes) {
+        this.family = family;
+        this.qualifier = qualifier;
+        this.familyBytes = familyBytes;
+        this.qualifierBytes = qualifierBytes;
+    }
+
+    public static HbaseColumn family(String family) {
+        HbaseColumn column = FAMILIES.get(family);
+        if (null != column) {
+            return column;
+        }
+        column = new HbaseColumn(family, null, Bytes.toBytes(family), null);
+        return intern(FAMILIES, family, column);
+    }
+
+    public static HbaseColumn of(String family, String qualifier) {
+        ConcurrentMap<String, HbaseColumn> columns = INTERNED.get(family);
+        HbaseColumn column = null == columns ? null : columns.get(qualifier);
+        if (null != column) {
+            return column;
+        }
+        HbaseColumn familyColumn = family(family);
+        column = new HbaseColumn(family, qualifier, familyColumn.familyBytes, Bytes.toBytes(qualifier));
+        if (null == columns) {
+            ConcurrentMap<String, HbaseColumn> created = new ConcurrentHashMap<String, HbaseColumn>();
+            columns = INTERNED.putIfAbsent(family, created);
+            if (null == columns) {
+                columns = created;
+            }
+        }
+        return intern(columns, qualifier, column);
+    }
+
+    /*
+     * 不缓存，qualifier为null表示整个列簇
+     */
+    public static HbaseColumn of(byte[] family, byte[] qualifier) {
+        return new HbaseColumn(null, null, family, qualifier);
+    }
+
+    private static HbaseColumn intern(ConcurrentMap<String, HbaseColumn> map, String key, HbaseColumn column) {
+        if (internedCount.get() >= MAX_INTERNED) {
+            return column;
+        }
+        HbaseColumn existing = map.putIfAbsent(key, column);
+        if (null != existing) {
+            return existing;
+        }
+        internedCount.incrementAndGet();
+        return column;
+    }
+
+    public String getFamily() {
+        String value = family;
+        if (null == value) {
+            value = Bytes.toString(familyBytes);
+            family = value;
+        }
+        return value;
+    }
+
+    public String getQualifier() {
+        String value = qualifier;
+        if (null == value && null != qualifierBytes) {
+            value = Bytes.toString(qualifierBytes);
+            qualifier = value;
+        }
+        return value;
+    }
+
+    public byte[] getFamilyBytes() { return familyBytes; }
+    public byte[] getQualifierBytes() { return qualifierBytes; }
+
+    @Override
+    public String toString() {
+        return null == qualifierBytes ? getFamily() : getFamily() + ":" + getQualifier();
+    }
+}
@@ -1,9 +1,18 @@
 package hbase.tool;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Created by jiandaohong on 2015/8/10.
  */
@@ -15,12 +24,93 @@ import org.apache.log4j.Logger;
 public class HbaseConfig {
     private static final Logger logger = LogManager.getLogger(HbaseConfig.class);
 
+    private static final HbaseConnectionFactory DEFAULT_CONNECTION_FACTORY = new HbaseConnectionFactory() {
+        public Connection createConnection(Configuration configuration) throws IOException {
+            return ConnectionFactory.createConnection(configuration);
+        }
+    };
+
     protected Configuration configuration = null;
     private String hbaseSiteFileName = null;
     private int poolSize;
     private int waitTimeMillis;
     private int healthCheckIntervalSecond;
     private String healthCheckTestTableName;
+    private HbaseConnectionFactory connectionFactory = DEFAULT_CONNECTION_FACTORY;
+    // 弹性连接池：poolSize为上限，minPoolSize为下限(小于0表示等于poolSize，即固定大小)；
+    // 借连接等待超过growWaitThresholdMillis时后台新建连接，空闲超过idleTimeoutMillis的连接被关闭(0表示不回收)
+    private int minPoolSize = -1;
+    private long growWaitThresholdMillis = 10L;
+    private long idleTimeoutMillis = 0L;
+    // 启动预热：并行建连接的线程数、初始化返回前至少就绪的连接数(小于0表示全部)、需要预先加载region位置的表
+    private int warmupThreads = 8;
+    private int readyPoolSize = -1;
+    private final List<String> warmupTables = new ArrayList<String>();
+    // 连接泄漏检测：借出超过maxLeaseMillis未归还时回收并补充新连接(0表示不检测)，是否记录借出时的调用栈
+    private long maxLeaseMillis = 0L;
+    private boolean leaseStackTraceEnabled = false;
+    // 连接校验：借出时、归还时是否检查连接已关闭或已abort，空闲连接在每次健康检查时校验
+    private boolean validateOnBorrow = true;
+    private boolean validateOnReturn = false;
+    // 熔断：是否开启、失败率阈值、统计窗口内最少调用数、统计窗口、打开持续时间、半开时试探请求数、
+    // 健康检查连续失败多少次直接打开(0表示不受健康检查影响)
+    private boolean circuitBreakerEnabled = false;
+    private double circuitBreakerFailureRate = 0.5;
+    private int circuitBreakerMinimumCalls = 20;
+    private long circuitBreakerWindowMillis = 10000L;
+    private long circuitBreakerOpenMillis = 5000L;
+    private int circuitBreakerHalfOpenCalls = 5;
+    private int circuitBreakerHealthCheckFailures = 3;
+    // 对冲读：主请求超过历史延迟的percentile分位(不低于minDelay)未返回时在另一个连接上再发一次，对冲比例不超过maxRate
+    private boolean hedgedReadEnabled = false;
+    private double hedgedReadPercentile = 95;
+    private long hedgedReadMinDelayMillis = 5L;
+    private double hedgedReadMaxRate = 0.1;
+    // 对冲请求使用TIMELINE一致性，可以由副本region响应
+    private boolean hedgedReadTimelineEnabled = false;
+    private int hedgedReadThreads = 16;
+    // 调用线程等待后台读(对冲读、get微批合并)结果的最长时间
+    private long readWaitTimeoutMillis = 60000L;
+    // 主备读切换：读延迟的移动平均超过该值时切到备集群，0表示只在主集群不可用或读失败时切换；切换后多久再尝试主集群
+    private long failoverLatencyThresholdMillis = 0L;
+    private long failoverMillis = 30000L;
+    // 大批量get/put按region server分组、按chunkSize切块后并发执行，chunkSize<=0表示不切块
+    private int batchChunkSize = 1000;
+    private int batchThreads = 8;
+    // 共享的hbase Connection个数，0表示每个池化连接独占一个Connection
+    private int sharedConnectionCount = 0;
+    // 表启用状态缓存有效期
+    private long tableStateCacheTtlMillis = 60000L;
+    // 异步批量写：BufferedMutator写缓冲大小、每张表缓冲队列容量、每批条数、定时刷新间隔、刷新线程数
+    private long writeBufferSizeBytes = 2 * 1024 * 1024L;
+    private int writeBufferCapacity = 10000;
+    private int writeBatchSize = 500;
+    private long writeFlushIntervalMillis = 1000L;
+    private int writeFlushThreads = 2;
+    // scan每次rpc返回的行数、每行返回的最大列数，<=0表示使用hbase-site中的配置
+    private int scanCaching = 0;
+    private int scanBatch = 0;
+    // 并行scan线程数
+    private int parallelScanThreads = 8;
+    // 客户端行缓存总大小上限(字节)，0表示不开启；默认缓存有效期
+    private long rowCacheMaxBytes = 0;
+    private long rowCacheTtlMillis = 60000L;
+    private final Map<String, Long> rowCacheTableTtlMillis = new HashMap<String, Long>();
+    // 是否合并相同的并发get请求
+    private boolean getCoalescingEnabled = false;
+    // 单行get微批合并：时间窗口(0表示不开启)、每批最多get数、发出批量get的线程数
+    private long getBatchWindowMillis = 0;
+    private int getBatchMaxSize = 100;
+    private int getBatchThreads = 4;
+    // 异步接口：执行线程数、排队上限、默认超时(0表示不超时)
+    private int asyncThreads = 64;
+    private int asyncQueueSize = 10000;
+    private long asyncTimeoutMillis = 0;
+    // 指标：是否注册jmx、定时输出到日志的间隔(0表示不输出)
+    private boolean metricsJmxEnabled = true;
+    private int metricsReportIntervalSecond = 0;
+    // 延迟直方图(操作延迟、借连接等待、对冲延迟)只统计最近这么多秒，<=0时从启动开始累计
+    private int metricsLatencyWindowSecond = 60;
 
     public HbaseConfig(String hbaseSiteFileName, int poolSize, int waitTimeMillis, int healthCheckIntervalSecond,
                        String healthCheckTestTableName, Configuration configuration) {
@@ -38,4 +128,270 @@ public class HbaseConfig {
     public int getWaitTimeMillis() { return waitTimeMillis; }
     public int getHealthCheckIntervalSecond() { return healthCheckIntervalSecond; }
     public String getHealthCheckTestTableName() { return healthCheckTestTableName; }
+    public HbaseConnectionFactory getConnectionFactory() { return connectionFactory; }
+    public int getMinPoolSize() { return minPoolSize < 0 ? poolSize : Math.min(minPoolSize, poolSize); }
+    public long getGrowWaitThresholdMillis() { return growWaitThresholdMillis; }
+    public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+    public int getWarmupThreads() { return warmupThreads; }
+    public int getReadyPoolSize() {
+        int minSize = getMinPoolSize();
+        return readyPoolSize < 0 ? minSize : Math.min(readyPoolSize, minSize);
+    }
+    public List<String> getWarmupTables() { return Collections.unmodifiableList(warmupTables); }
+    public long getMaxLeaseMillis() { return maxLeaseMillis; }
+    public boolean isLeaseStackTraceEnabled() { return leaseStackTraceEnabled; }
+    public boolean isValidateOnBorrow() { return validateOnBorrow; }
+    public boolean isValidateOnReturn() { return validateOnReturn; }
+    public boolean isCircuitBreakerEnabled() { return circuitBreakerEnabled; }
+    public double getCircuitBreakerFailureRate() { return circuitBreakerFailureRate; }
+    public int getCircuitBreakerMinimumCalls() { return circuitBreakerMinimumCalls; }
+    public long getCircuitBreakerWindowMillis() { return circuitBreakerWindowMillis; }
+    public long getCircuitBreakerOpenMillis() { return circuitBreakerOpenMillis; }
+    public int getCircuitBreakerHalfOpenCalls() { return circuitBreakerHalfOpenCalls; }
+    public int getCircuitBreakerHealthCheckFailures() { return circuitBreakerHealthCheckFailures; }
+    public boolean isHedgedReadEnabled() { return hedgedReadEnabled; }
+    public double getHedgedReadPercentile() { return hedgedReadPercentile; }
+    public long getHedgedReadMinDelayMillis() { return hedgedReadMinDelayMillis; }
+    public double getHedgedReadMaxRate() { return hedgedReadMaxRate; }
+    public boolean isHedgedReadTimelineEnabled() { return hedgedReadTimelineEnabled; }
+    public int getHedgedReadThreads() { return hedgedReadThreads; }
+    public long getReadWaitTimeoutMillis() { return readWaitTimeoutMillis; }
+    public long getFailoverLatencyThresholdMillis() { return failoverLatencyThresholdMillis; }
+    public long getFailoverMillis() { return failoverMillis; }
+    public int getBatchChunkSize() { return batchChunkSize; }
+    public int getBatchThreads() { return batchThreads; }
+    public int getSharedConnectionCount() { return sharedConnectionCount; }
+    public long getTableStateCacheTtlMillis() { return tableStateCacheTtlMillis; }
+    public long getWriteBufferSizeBytes() { return writeBufferSizeBytes; }
+    public int getWriteBufferCapacity() { return writeBufferCapacity; }
+    public int getWriteBatchSize() { return writeBatchSize; }
+    public long getWriteFlushIntervalMillis() { return writeFlushIntervalMillis; }
+    public int getWriteFlushThreads() { return writeFlushThreads; }
+    public int getScanCaching() { return scanCaching; }
+    public int getScanBatch() { return scanBatch; }
+    public int getParallelScanThreads() { return parallelScanThreads; }
+    public long getRowCacheMaxBytes() { return rowCacheMaxBytes; }
+    public long getRowCacheTtlMillis() { return rowCacheTtlMillis; }
+    public Map<String, Long> getRowCacheTableTtlMillis() { return Collections.unmodifiableMap(rowCacheTableTtlMillis); }
+    public boolean isGetCoalescingEnabled() { return getCoalescingEnabled; }
+    public long getGetBatchWindowMillis() { return getBatchWindowMillis; }
+    public int getGetBatchMaxSize() { return getBatchMaxSize; }
+    public int getGetBatchThreads() { return getBatchThreads; }
+    public int getAsyncThreads() { return asyncThreads; }
+    public int getAsyncQueueSize() { return asyncQueueSize; }
+    public long getAsyncTimeoutMillis() { return asyncTimeoutMillis; }
+    public boolean isMetricsJmxEnabled() { return metricsJmxEnabled; }
+    public int getMetricsReportIntervalSecond() { return metricsReportIntervalSecond; }
+    public int getMetricsLatencyWindowSecond() { return metricsLatencyWindowSecond; }
+
+    public void setConnectionFactory(HbaseConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    public void setGrowWaitThresholdMillis(long growWaitThresholdMillis) {
+        this.growWaitThresholdMillis = growWaitThresholdMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void setWarmupThreads(int warmupThreads) {
+        this.warmupThreads = warmupThreads;
+    }
+
+    public void setReadyPoolSize(int readyPoolSize) {
+        this.readyPoolSize = readyPoolSize;
+    }
+
+    public void addWarmupTable(String tableName) {
+        warmupTables.add(tableName);
+    }
+
+    public void setMaxLeaseMillis(long maxLeaseMillis) {
+        this.maxLeaseMillis = maxLeaseMillis;
+    }
+
+    public void setLeaseStackTraceEnabled(boolean leaseStackTraceEnabled) {
+        this.leaseStackTraceEnabled = leaseStackTraceEnabled;
+    }
+
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public void setValidateOnReturn(boolean validateOnReturn) {
+        this.validateOnReturn = validateOnReturn;
+    }
+
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+
+    public void setCircuitBreakerFailureRate(double circuitBreakerFailureRate) {
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+    }
+
+    public void setCircuitBreakerWindowMillis(long circuitBreakerWindowMillis) {
+        this.circuitBreakerWindowMillis = circuitBreakerWindowMillis;
+    }
+
+    public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    public void setCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+        this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+    }
+
+    public void setCircuitBreakerHealthCheckFailures(int circuitBreakerHealthCheckFailures) {
+        this.circuitBreakerHealthCheckFailures = circuitBreakerHealthCheckFailures;
+    }
+
+    public void setHedgedReadEnabled(boolean hedgedReadEnabled) {
+        this.hedgedReadEnabled = hedgedReadEnabled;
+    }
+
+    public void setHedgedReadPercentile(double hedgedReadPercentile) {
+        this.hedgedReadPercentile = hedgedReadPercentile;
+    }
+
+    public void setHedgedReadMinDelayMillis(long hedgedReadMinDelayMillis) {
+        this.hedgedReadMinDelayMillis = hedgedReadMinDelayMillis;
+    }
+
+    public void setHedgedReadMaxRate(double hedgedReadMaxRate) {
+        this.hedgedReadMaxRate = hedgedReadMaxRate;
+    }
+
+    public void setHedgedReadTimelineEnabled(boolean hedgedReadTimelineEnabled) {
+        this.hedgedReadTimelineEnabled = hedgedReadTimelineEnabled;
+    }
+
+    public void setHedgedReadThreads(int hedgedReadThreads) {
+        this.hedgedReadThreads = hedgedReadThreads;
+    }
+
+    public void setReadWaitTimeoutMillis(long readWaitTimeoutMillis) {
+        this.readWaitTimeoutMillis = readWaitTimeoutMillis;
+    }
+
+    public void setFailoverLatencyThresholdMillis(long failoverLatencyThresholdMillis) {
+        this.failoverLatencyThresholdMillis = failoverLatencyThresholdMillis;
+    }
+
+    public void setFailoverMillis(long failoverMillis) {
+        this.failoverMillis = failoverMillis;
+    }
+
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    public void setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    public void setSharedConnectionCount(int sharedConnectionCount) {
+        this.sharedConnectionCount = sharedConnectionCount;
+    }
+
+    public void setTableStateCacheTtlMillis(long tableStateCacheTtlMillis) {
+        this.tableStateCacheTtlMillis = tableStateCacheTtlMillis;
+    }
+
+    public void setWriteBufferSizeBytes(long writeBufferSizeBytes) {
+        this.writeBufferSizeBytes = writeBufferSizeBytes;
+    }
+
+    public void setWriteBufferCapacity(int writeBufferCapacity) {
+        this.writeBufferCapacity = writeBufferCapacity;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public void setWriteFlushIntervalMillis(long writeFlushIntervalMillis) {
+        this.writeFlushIntervalMillis = writeFlushIntervalMillis;
+    }
+
+    public void setWriteFlushThreads(int writeFlushThreads) {
+        this.writeFlushThreads = writeFlushThreads;
+    }
+
+    public void setScanCaching(int scanCaching) {
+        this.scanCaching = scanCaching;
+    }
+
+    public void setScanBatch(int scanBatch) {
+        this.scanBatch = scanBatch;
+    }
+
+    public void setParallelScanThreads(int parallelScanThreads) {
+        this.parallelScanThreads = parallelScanThreads;
+    }
+
+    public void setRowCacheMaxBytes(long rowCacheMaxBytes) {
+        this.rowCacheMaxBytes = rowCacheMaxBytes;
+    }
+
+    public void setRowCacheTtlMillis(long rowCacheTtlMillis) {
+        this.rowCacheTtlMillis = rowCacheTtlMillis;
+    }
+
+    /*
+     * 单表行缓存有效期，<=0表示该表不缓存
+     */
+    public void setRowCacheTableTtlMillis(String tableName, long ttlMillis) {
+        rowCacheTableTtlMillis.put(tableName, ttlMillis);
+    }
+
+    public void setGetCoalescingEnabled(boolean getCoalescingEnabled) {
+        this.getCoalescingEnabled = getCoalescingEnabled;
+    }
+
+    public void setGetBatchWindowMillis(long getBatchWindowMillis) {
+        this.getBatchWindowMillis = getBatchWindowMillis;
+    }
+
+    public void setGetBatchMaxSize(int getBatchMaxSize) {
+        this.getBatchMaxSize = getBatchMaxSize;
+    }
+
+    public void setGetBatchThreads(int getBatchThreads) {
+        this.getBatchThreads = getBatchThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+    }
+
+    public void setMetricsJmxEnabled(boolean metricsJmxEnabled) {
+        this.metricsJmxEnabled = metricsJmxEnabled;
+    }
+
+    public void setMetricsReportIntervalSecond(int metricsReportIntervalSecond) {
+        this.metricsReportIntervalSecond = metricsReportIntervalSecond;
+    }
+
+    public void setMetricsLatencyWindowSecond(int metricsLatencyWindowSecond) {
+        this.metricsLatencyWindowSecond = metricsLatencyWindowSecond;
+    }
 }
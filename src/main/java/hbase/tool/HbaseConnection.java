@@ -1,11 +1,15 @@
 package hbase.tool;
 
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
-import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by jiandaohong on 2015/8/10.
@@ -14,8 +18,25 @@ import java.io.IOException;
 public class HbaseConnection {
     private static final Logger logger = LogManager.getLogger(HbaseConnection.class);
 
-    private Connection connection = null;
+    private volatile Connection connection = null;
     private HbaseConfig config = null;
+    // 共享模式下真正持有hbase Connection的连接，为null表示独占一个Connection
+    private HbaseConnection sharedOwner = null;
+    // releaseConnection之后为true，被泄漏检测回收或连接池清空后仍在使用的连接直接失败，不再重连
+    private volatile boolean closed = false;
+    // 所属连接池的代数，连接池重置后旧连接归还时直接关闭
+    private volatile int generation = 0;
+    // 最近一次进入空闲状态的时间，用于回收长时间空闲的连接
+    private volatile long idleSince = System.currentTimeMillis();
+    // 借出时间，0表示未借出；借出、归还、泄漏回收都对它CAS，借出状态和借出时间是同一个原子值，
+    // 泄漏检测不会拿旧的借出时间回收刚借出的连接；借出时的调用栈(未开启时为null)只用于日志
+    private final AtomicLong leaseTime = new AtomicLong(0);
+    private volatile Throwable leaseTrace = null;
+    // 表句柄缓存，句柄来自tablesConnection；hbase Connection重建或连接池的表版本号(删表时增加)变化时整体关闭
+    private final Map<TableName, Table> tables = new HashMap<TableName, Table>();
+    private Connection tablesConnection = null;
+    private long tablesEpoch = 0;
+    private AtomicLong tableEpoch = null;
 
     public HbaseConnection() { }
 
@@ -25,8 +46,9 @@ public class HbaseConnection {
             return -1;
         }
         this.config = config;
+        this.closed = false;
         try {
-            connection = ConnectionFactory.createConnection(config.getConfiguration());
+            connection = config.getConnectionFactory().createConnection(config.getConfiguration());
         } catch (IOException e) {
             e.printStackTrace();
             logger.error("create connection failed. config file :" + config.getHbaseSiteFileName());
@@ -35,28 +57,192 @@ public class HbaseConnection {
         return 0;
     }
 
+    /*
+     * 共享模式：多个池化连接复用同一个hbase Connection(Connection本身线程安全)，
+     * 池化连接只是一个轻量的租约，Connection的关闭和重连都由owner负责
+     */
+    public synchronized int initSharedConnection(HbaseConfig config, HbaseConnection owner) {
+        if (null == config || null == owner) {
+            logger.error("config or shared owner is null. cannot share hbase connection");
+            return -1;
+        }
+        this.config = config;
+        this.sharedOwner = owner;
+        this.closed = false;
+        return 0;
+    }
+
+    public boolean isShared() { return null != sharedOwner; }
+
+    /*
+     * 是否已调用过initConnection/initSharedConnection，未初始化的连接没有配置，不能重连
+     */
+    public synchronized boolean isInitialized() { return null != config; }
+
+    HbaseConnection getSharedOwner() { return sharedOwner; }
+
+    /*
+     * 本地检查hbase Connection是否可用(已创建、未关闭、未abort)，不发rpc
+     */
+    public boolean isValid() {
+        HbaseConnection owner = sharedOwner;
+        if (null != owner) {
+            return owner.isValid();
+        }
+        Connection conn = connection;
+        return null != conn && !conn.isClosed() && !conn.isAborted();
+    }
+
+    /*
+     * 连接失效时重连，多个线程同时发现失效也只重连一次
+     */
+    public synchronized void reconnectIfInvalid() {
+        if (closed) {
+            return;
+        }
+        if (null != sharedOwner) {
+            sharedOwner.reconnectIfInvalid();
+        } else if (!isValid()) {
+            reconnect();
+        }
+    }
+
+    /*
+     * 缓存的表句柄，调用方不能关闭。Table不是线程安全的，只能在借出期间由借出连接的线程使用，
+     * 需要跨线程使用(如并行scan、返回给调用方的scanner)时直接从getConnection()取新的Table
+     */
+    public synchronized Table getTable(TableName tableName) throws IOException {
+        if (closed) {
+            throw new IOException("hbase connection has been closed or reclaimed");
+        }
+        Connection conn = getConnection();
+        long epoch = null == tableEpoch ? 0 : tableEpoch.get();
+        if (conn != tablesConnection || epoch != tablesEpoch) {
+            closeTables();
+            tablesConnection = conn;
+            tablesEpoch = epoch;
+        }
+        Table table = tables.get(tableName);
+        if (null == table) {
+            table = conn.getTable(tableName);
+            tables.put(tableName, table);
+        }
+        return table;
+    }
+
+    private void closeTables() {
+        for (Table table : tables.values()) {
+            try {
+                table.close();
+            } catch (IOException e) {
+                logger.warn("close table failed. exception:" + e.getMessage());
+            }
+        }
+        tables.clear();
+        tablesConnection = null;
+    }
+
+    /*
+     * 连接池的表版本号，删表等需要让所有连接丢弃表句柄时增加
+     */
+    void setTableEpoch(AtomicLong tableEpoch) { this.tableEpoch = tableEpoch; }
+
     public synchronized void releaseConnection() throws IOException {
+        closed = true;
+        closeTables();
+        if (null != sharedOwner) {
+            // 共享的Connection由owner关闭
+            sharedOwner = null;
+            return;
+        }
         if (null != connection) {
             connection.close();
         }
         connection = null;
     }
 
-    public synchronized Connection getConnection() {
-        if (connection == null) {
-            reconnect();
+    /*
+     * 已关闭(被回收)的连接抛出IllegalStateException，不会重建hbase Connection
+     */
+    public Connection getConnection() {
+        if (closed) {
+            throw new IllegalStateException("hbase connection has been closed or reclaimed");
+        }
+        HbaseConnection owner = sharedOwner;
+        if (null != owner) {
+            return owner.getConnection();
+        }
+        Connection conn = connection;
+        if (null != conn) {
+            return conn;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("hbase connection has been closed or reclaimed");
+            }
+            if (connection == null) {
+                reconnect();
+            }
+            return connection;
         }
-        return connection;
     }
 
     public synchronized void reconnect() {
+        if (closed) {
+            logger.warn("hbase connection has been closed, skip reconnect");
+            return;
+        }
+        if (null == config) {
+            logger.warn("hbase connection is not initialized, skip reconnect");
+            return;
+        }
+        if (null != sharedOwner) {
+            sharedOwner.reconnect();
+            return;
+        }
+        closeTables();
         try {
             if (null != connection) {
                 connection.close();
             }
-            connection = ConnectionFactory.createConnection(this.config.getConfiguration());
+            connection = this.config.getConnectionFactory().createConnection(this.config.getConfiguration());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    public boolean isClosed() { return closed; }
+    public boolean isLeased() { return 0 != leaseTime.get(); }
+
+    boolean markLeased(long now, Throwable trace) {
+        leaseTrace = trace;
+        return leaseTime.compareAndSet(0, Math.max(1L, now));
+    }
+
+    boolean markReleased() {
+        long current;
+        do {
+            current = leaseTime.get();
+            if (0 == current) {
+                return false;
+            }
+        } while (!leaseTime.compareAndSet(current, 0));
+        return true;
+    }
+
+    /*
+     * 只有仍是expectedLeaseTime这次借出时才回收
+     */
+    boolean reclaimLease(long expectedLeaseTime) {
+        return 0 != expectedLeaseTime && leaseTime.compareAndSet(expectedLeaseTime, 0);
+    }
+
+    int getGeneration() { return generation; }
+    void setGeneration(int generation) { this.generation = generation; }
+
+    long getIdleSince() { return idleSince; }
+    void setIdleSince(long idleSince) { this.idleSince = idleSince; }
+
+    long getLeaseTime() { return leaseTime.get(); }
+    Throwable getLeaseTrace() { return leaseTrace; }
 }
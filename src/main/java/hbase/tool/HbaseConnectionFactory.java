@@ -0,0 +1,15 @@
+package hbase.tool;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Connection;
+
+import java.io.IOException;
+
+/*
+ * 创建hbase Connection的工厂，默认使用ConnectionFactory
+ * 可以替换为不访问网络的实现，用于压测和单机调试
+ */
+
+public interface HbaseConnectionFactory {
+    Connection createConnection(Configuration configuration) throws IOException;
+}
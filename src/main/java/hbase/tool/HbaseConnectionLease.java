@@ -0,0 +1,39 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Connection;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * 借出的池化连接，close时归还连接池，可用于try-with-resources：
+ *     try (HbaseConnectionLease lease = pool.borrowConnection()) {
+ *         if (null != lease) { ... lease.getConnection() ... }
+ *     }
+ * 多次close只归还一次
+ */
+
+public class HbaseConnectionLease implements Closeable {
+    private final HbaseConnectionPool connectionPool;
+    private final HbaseConnection connection;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    HbaseConnectionLease(HbaseConnectionPool connectionPool, HbaseConnection connection) {
+        this.connectionPool = connectionPool;
+        this.connection = connection;
+    }
+
+    public Connection getConnection() {
+        return connection.getConnection();
+    }
+
+    public HbaseConnection getHbaseConnection() {
+        return connection;
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            connectionPool.releaseConnection(connection);
+        }
+    }
+}
@@ -2,18 +2,31 @@ package hbase.tool;
 
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by jiandaohong on 2015/8/10.
@@ -21,46 +34,98 @@ import java.util.concurrent.locks.ReentrantLock;
 
 /*
  * hbase connection pool for a hbase cluster
+ *
+ * 空闲连接放在无锁栈中(后进先出，刚归还的连接优先被复用)，信号量的许可数等于空闲连接数，
+ * 借出和归还都不需要全局锁，也不再维护busy列表
+ *
+ * 连接数在[minPoolSize, poolSize]之间伸缩：初始化只建minPoolSize个，借连接等待超过阈值时由后台线程新建，
+ * 调用方不会在借连接时同步建连接；后台线程定时关闭空闲超时的连接(从栈底即最久未用的开始)，并补足到minPoolSize
+ *
+ * 初始化时用warmupThreads个线程并行建连接(并可预先加载指定表的region位置)，
+ * 就绪readyPoolSize个后即返回，其余连接在后台继续创建
+ *
+ * 借出的连接记录借出时间(可选记录调用栈)，超过maxLeaseMillis未归还视为泄漏：打印日志、移出连接池并关闭，
+ * 由后台线程补充新连接；之后调用方再归还该连接会被忽略
+ *
+ * 连接在借出时(以及可选的归还时)和每次健康检查时(空闲连接)做本地校验，已关闭或已abort的连接单独移出并在后台替换，
+ * 不影响其它连接上正在进行的请求；健康检查探测失败不再重建整个连接池
  */
 
-public class HbaseConnectionPool {
+public class HbaseConnectionPool implements HbasePoolMXBean {
     private static final Logger logger = LogManager.getLogger(HbaseConnectionPool.class);
 
-    private List<HbaseConnection> busyConnection;
-    private List<HbaseConnection> idleConnection;
+    // 空闲连接栈
+    private final Deque<HbaseConnection> idleConnection = new ConcurrentLinkedDeque<HbaseConnection>();
+    // 连接池中所有连接，仅在初始化/重置时修改
+    private final List<HbaseConnection> allConnection = new CopyOnWriteArrayList<HbaseConnection>();
+    // 共享模式下真正持有hbase Connection的连接，不参与借出
+    private final List<HbaseConnection> sharedConnection = new CopyOnWriteArrayList<HbaseConnection>();
+    // 许可数 == 空闲连接数
+    private final Semaphore available = new Semaphore(0);
+    // 连接池代数，每次清空连接池加一
+    private volatile int generation = 0;
+    // 连接总数，包括正在后台创建的，不超过poolSize
+    private final AtomicInteger totalCount = new AtomicInteger(0);
+    // 表版本号，增加后各连接在下次取表句柄时关闭缓存的句柄
+    private final AtomicLong tableEpoch = new AtomicLong(0);
+    // 共享模式下轮流为新连接分配owner
+    private final AtomicInteger sharedIndex = new AtomicInteger(0);
+    // 后台建连接、回收空闲连接
+    private ScheduledExecutorService maintainExecutor = null;
     // 集群配置
     private HbaseConfig hbaseClusterConfig = null;
-    private int unAvailableTimes = 0;
-    private final Lock lock = new ReentrantLock();
-    private final Condition notEmpty = lock.newCondition();
+    // 健康检查连续失败次数
+    private volatile int unAvailableTimes = 0;
+    // 借连接等待时间和超时次数
+    private volatile HbaseLatencyHistogram checkoutWait = new HbaseLatencyHistogram();
+    private final AtomicLong checkoutTimeoutCount = new AtomicLong(0);
+    private final AtomicLong leakedCount = new AtomicLong(0);
+    private final AtomicLong brokenCount = new AtomicLong(0);
+    // 健康检查连续失败多少次后重建健康检查连接
+    private static final int HEALTH_CHECK_RECONNECT_TIMES = 10;
 
     private HbaseConnection healthCheckConnection = null;
     private ScheduledExecutorService healthCheckExecutor = null;
+    // 健康检查结果同步给熔断器，未开启熔断时为null
+    private volatile HbaseCircuitBreaker circuitBreaker = null;
+
+    public void setCircuitBreaker(HbaseCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
 
     public int init(HbaseConfig hbaseConfig) {
         if (hbaseConfig == null) {
             return -1;
         }
-        idleConnection = new LinkedList<HbaseConnection>();
-        busyConnection = new LinkedList<HbaseConnection>();
         this.hbaseClusterConfig = hbaseConfig;
+        checkoutWait = new HbaseLatencyHistogram(hbaseConfig.getMetricsLatencyWindowSecond() * 1000L);
 
-        int ret;
-        HbaseConnection connection;
-        for (int i = 0; i < hbaseConfig.getPoolSize(); ++i) {
-            connection = new HbaseConnection();
-            ret = connection.initConnection(hbaseConfig);
-            if (0 != ret) {
-                logger.warn("init connection failed.");
-                return -1;
-            }
-            idleConnection.add(connection);
-            logger.debug("add connection success");
+        maintainExecutor = new ScheduledThreadPoolExecutor(1, new HbaseThreadFactory("hbase-pool-maintain"));
+        if (0 != createPooledConnections()) {
+            maintainExecutor.shutdownNow();
+            return -1;
+        }
+        long maintainInterval = 30000L;
+        if (hbaseConfig.getIdleTimeoutMillis() > 0) {
+            maintainInterval = Math.min(maintainInterval, Math.max(1000L, hbaseConfig.getIdleTimeoutMillis() / 2));
         }
+        if (hbaseConfig.getMaxLeaseMillis() > 0) {
+            maintainInterval = Math.min(maintainInterval, Math.max(1000L, hbaseConfig.getMaxLeaseMillis() / 2));
+        }
+        maintainExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                maintain();
+            }
+        }, maintainInterval, maintainInterval, TimeUnit.MILLISECONDS);
 
-        // health check
+        // health check，连接在后台创建，创建开始之前的检查直接跳过
         healthCheckConnection = new HbaseConnection();
-        healthCheckConnection.initConnection(hbaseConfig);
+        final HbaseConnection checkConnection = healthCheckConnection;
+        maintainExecutor.execute(new Runnable() {
+            public void run() {
+                checkConnection.initConnection(hbaseClusterConfig);
+            }
+        });
         healthCheckExecutor = new ScheduledThreadPoolExecutor(1);
         healthCheckExecutor.scheduleWithFixedDelay(new HbaseHealthCheckThread(),
                 hbaseConfig.getHealthCheckIntervalSecond() * 1000,
@@ -69,111 +134,579 @@ public class HbaseConnectionPool {
         return 0;
     }
 
-    // TODO
-    public void clearPool() {
-        lock.lock();
+    /*
+     * 并行创建minPoolSize个池化连接，就绪readyPoolSize个后返回，其余在后台继续创建。
+     * 共享模式下只创建sharedConnectionCount个真正的hbase Connection(等待全部完成)，池化连接轮流复用它们。
+     * 个别连接创建失败不影响初始化，缺少的连接由后台线程补足；已完成的全部失败时返回-1
+     */
+    private int createPooledConnections() {
+        int sharedCount = Math.min(hbaseClusterConfig.getSharedConnectionCount(), hbaseClusterConfig.getPoolSize());
+        int minSize = hbaseClusterConfig.getMinPoolSize();
+        final int expectedGeneration = generation;
+        ExecutorService warmupExecutor = Executors.newFixedThreadPool(Math.max(1, hbaseClusterConfig.getWarmupThreads()),
+                new HbaseThreadFactory("hbase-pool-warmup"));
         try {
-            int size = idleConnection.size();
-            for (HbaseConnection connection : idleConnection) {
-                if (connection != null) {
-                    connection.getConnection().close();
+            if (sharedCount > 0) {
+                createSharedConnections(sharedCount, warmupExecutor);
+                // 共享模式下的池化连接只是租约，不需要并行
+                for (int i = 0; i < minSize; ++i) {
+                    createConnection(expectedGeneration, false);
                 }
+                logger.info("connection pool shares " + sharedCount + " hbase connections among pooled connections");
+                return 0;
             }
-            for (HbaseConnection connection : busyConnection) {
-                if (connection != null) {
-                    connection.getConnection().close();
+
+            CompletionService<Boolean> completionService = new ExecutorCompletionService<Boolean>(warmupExecutor);
+            for (int i = 0; i < minSize; ++i) {
+                completionService.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return createConnection(expectedGeneration, true);
+                    }
+                });
+            }
+            int readySize = hbaseClusterConfig.getReadyPoolSize();
+            int ready = 0;
+            int completed = 0;
+            while (ready < readySize && completed < minSize) {
+                Future<Boolean> future = completionService.take();
+                completed++;
+                try {
+                    if (future.get()) {
+                        ready++;
+                    }
+                } catch (ExecutionException e) {
+                    logger.warn("create connection exception:" + e.getCause().getMessage());
                 }
             }
-            busyConnection.clear();
-            idleConnection.clear();
-        } catch (IOException e) {
-            e.printStackTrace();
+            if (completed < minSize) {
+                logger.info(ready + " connections ready, " + (minSize - completed) + " more in background");
+            } else if (ready < minSize) {
+                logger.warn("only " + ready + " of " + minSize + " connections created, the rest will be created later");
+            }
+            return (0 == ready && minSize > 0) ? -1 : 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException e) {
+            logger.error("create shared connection exception:" + e.getCause().getMessage());
+            return -1;
         } finally {
-            lock.unlock();
+            // 已提交的任务继续执行完后线程退出
+            warmupExecutor.shutdown();
         }
     }
 
-    public void resetConnectionPool() {
-        lock.lock();
-        idleConnection = new LinkedList<HbaseConnection>();
-        busyConnection = new LinkedList<HbaseConnection>();
-        HbaseConnection connection;
-        int ret = 0;
-        for (int i = 0; i < hbaseClusterConfig.getPoolSize(); ++i) {
-            connection = new HbaseConnection();
+    private void createSharedConnections(int sharedCount, ExecutorService warmupExecutor)
+            throws InterruptedException, ExecutionException {
+        List<Future<HbaseConnection>> futures = new ArrayList<Future<HbaseConnection>>(sharedCount);
+        for (int i = 0; i < sharedCount; ++i) {
+            futures.add(warmupExecutor.submit(new Callable<HbaseConnection>() {
+                public HbaseConnection call() {
+                    HbaseConnection connection = new HbaseConnection();
+                    if (0 != connection.initConnection(hbaseClusterConfig)) {
+                        // owner在第一次getConnection时重连
+                        logger.warn("init shared connection failed.");
+                    } else {
+                        warmUpRegionLocations(connection.getConnection());
+                    }
+                    return connection;
+                }
+            }));
+        }
+        for (Future<HbaseConnection> future : futures) {
+            sharedConnection.add(future.get());
+        }
+    }
+
+    /*
+     * 逐个region查询一次位置，使其进入该Connection的region位置缓存，避免第一次请求时再查meta表
+     */
+    private void warmUpRegionLocations(Connection connection) {
+        for (String tableName : hbaseClusterConfig.getWarmupTables()) {
+            try {
+                RegionLocator locator = connection.getRegionLocator(HbaseTableNames.valueOf(tableName));
+                try {
+                    for (byte[] startKey : locator.getStartKeys()) {
+                        locator.getRegionLocation(startKey);
+                    }
+                } finally {
+                    locator.close();
+                }
+            } catch (IOException e) {
+                logger.warn("warm up region locations of table " + tableName + " failed. exception:" + e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("warm up region locations of table " + tableName + " exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * 占用一个连接名额，连接总数已达poolSize时返回false
+     */
+    private boolean reserveSlot() {
+        int count;
+        do {
+            count = totalCount.get();
+            if (count >= hbaseClusterConfig.getPoolSize()) {
+                return false;
+            }
+        } while (!totalCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /*
+     * 新建一个连接并加入连接池；期间连接池被清空(代数变化)时丢弃新连接。
+     * warmUp为true时在加入连接池前预先加载region位置
+     */
+    private boolean createConnection(int expectedGeneration, boolean warmUp) {
+        if (!reserveSlot()) {
+            return false;
+        }
+        HbaseConnection connection = new HbaseConnection();
+        int ret;
+        int sharedCount = sharedConnection.size();
+        if (sharedCount > 0) {
+            int index = (sharedIndex.getAndIncrement() & Integer.MAX_VALUE) % sharedCount;
+            ret = connection.initSharedConnection(hbaseClusterConfig, sharedConnection.get(index));
+        } else {
             ret = connection.initConnection(hbaseClusterConfig);
+            if (0 == ret && warmUp) {
+                warmUpRegionLocations(connection.getConnection());
+            }
+        }
+        synchronized (this) {
+            if (expectedGeneration != generation) {
+                closeQuietly(connection);
+                return false;
+            }
             if (0 != ret) {
                 logger.warn("init connection failed.");
+                totalCount.decrementAndGet();
+                return false;
             }
-            idleConnection.add(connection);
-            logger.debug("add connection success");
+            addConnection(connection);
         }
-        lock.unlock();
+        logger.debug("add connection success");
+        return true;
     }
 
-    public HbaseConnection getConnection() {
-        lock.lock();
+    /*
+     * 借连接等待超过阈值时调用，在后台线程新建一个连接
+     */
+    private void requestGrow() {
+        if (totalCount.get() >= hbaseClusterConfig.getPoolSize()) {
+            return;
+        }
+        final int expectedGeneration = generation;
         try {
-            while (idleConnection.isEmpty()) {
-                notEmpty.await(hbaseClusterConfig.getWaitTimeMillis(), TimeUnit.MILLISECONDS);
+            maintainExecutor.execute(new Runnable() {
+                public void run() {
+                    if (createConnection(expectedGeneration, false)) {
+                        logger.info("connection pool grows to " + totalCount.get());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("connection pool is closed, cannot grow");
+        }
+    }
+
+    /*
+     * 定时任务：回收泄漏的连接，关闭空闲超时的连接，补足到minPoolSize
+     */
+    private void maintain() {
+        try {
+            reclaimLeakedConnections();
+            evictIdleConnections();
+            int expectedGeneration = generation;
+            while (totalCount.get() < hbaseClusterConfig.getMinPoolSize()) {
+                if (!createConnection(expectedGeneration, false)) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("connection pool maintain exception:" + e.getMessage());
+        }
+    }
+
+    private void reclaimLeakedConnections() {
+        long maxLease = hbaseClusterConfig.getMaxLeaseMillis();
+        if (maxLease <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (HbaseConnection connection : allConnection) {
+            long leaseTime = connection.getLeaseTime();
+            long leaseMillis = now - leaseTime;
+            if (0 == leaseTime || leaseMillis < maxLease) {
+                continue;
+            }
+            // 与调用方的归还、重新借出竞争，仍是同一次借出且CAS成功才回收
+            if (!connection.reclaimLease(leaseTime)) {
+                continue;
+            }
+            leakedCount.incrementAndGet();
+            Throwable trace = connection.getLeaseTrace();
+            if (null != trace) {
+                logger.warn("connection leased for " + leaseMillis + "ms without release, reclaim it", trace);
+            } else {
+                logger.warn("connection leased for " + leaseMillis + "ms without release, reclaim it. "
+                        + "set hbase.connection.lease.stacktrace.enable=true to find the caller");
+            }
+            synchronized (this) {
+                if (connection.getGeneration() == generation && allConnection.remove(connection)) {
+                    totalCount.decrementAndGet();
+                }
+            }
+            closeQuietly(connection);
+        }
+    }
+
+    private void evictIdleConnections() {
+        long idleTimeout = hbaseClusterConfig.getIdleTimeoutMillis();
+        if (idleTimeout <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        while (totalCount.get() > hbaseClusterConfig.getMinPoolSize()) {
+            if (!available.tryAcquire()) {
+                break;
+            }
+            // 栈底是最久未使用的连接
+            HbaseConnection connection = idleConnection.pollLast();
+            if (null == connection) {
+                break;
+            }
+            if (now - connection.getIdleSince() < idleTimeout) {
+                idleConnection.offerLast(connection);
+                available.release();
+                break;
+            }
+            synchronized (this) {
+                if (connection.getGeneration() == generation && allConnection.remove(connection)) {
+                    totalCount.decrementAndGet();
+                }
+            }
+            closeQuietly(connection);
+            evicted++;
+        }
+        if (evicted > 0) {
+            logger.info("closed " + evicted + " idle connections. pool size:" + totalCount.get());
+        }
+    }
+
+    private static void closeQuietly(HbaseConnection connection) {
+        try {
+            connection.releaseConnection();
+        } catch (IOException e) {
+            logger.warn("close connection failed. exception:" + e.getMessage());
+        }
+    }
+
+    /*
+     * 将新建的连接加入连接池，并置为空闲
+     */
+    private void addConnection(HbaseConnection connection) {
+        connection.setGeneration(generation);
+        connection.setTableEpoch(tableEpoch);
+        connection.setIdleSince(System.currentTimeMillis());
+        allConnection.add(connection);
+        idleConnection.offerFirst(connection);
+        available.release();
+    }
+
+    /*
+     * 删表、重建表后调用，所有连接丢弃缓存的表句柄
+     */
+    public void invalidateTables() {
+        tableEpoch.incrementAndGet();
+    }
+
+    // TODO
+    public synchronized void clearPool() {
+        // 代数加一后，仍被借出的旧连接在归还时会被直接关闭
+        generation++;
+        totalCount.set(0);
+        available.drainPermits();
+        idleConnection.clear();
+        for (HbaseConnection connection : allConnection) {
+            try {
+                connection.releaseConnection();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            if (idleConnection.isEmpty()) {
+        }
+        allConnection.clear();
+        for (HbaseConnection connection : sharedConnection) {
+            try {
+                connection.releaseConnection();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        sharedConnection.clear();
+    }
+
+    /*
+     * 不持有连接池的锁，并行建连接的线程加入连接时需要获取该锁
+     */
+    public void resetConnectionPool() {
+        createPooledConnections();
+    }
+
+    /*
+     * 停止健康检查并关闭所有连接
+     */
+    public void close() {
+        if (null != healthCheckExecutor) {
+            healthCheckExecutor.shutdownNow();
+        }
+        if (null != maintainExecutor) {
+            maintainExecutor.shutdownNow();
+        }
+        clearPool();
+        if (null != healthCheckConnection) {
+            try {
+                healthCheckConnection.releaseConnection();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public HbaseConnection getConnection() {
+        long startNanos = System.nanoTime();
+        HbaseConnection connection;
+        while (true) {
+            try {
+                if (!acquire(startNanos)) {
+                    checkoutTimeoutCount.incrementAndGet();
+                    logger.warn("no idle connection");
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            connection = idleConnection.pollFirst();
+            if (null == connection) {
+                // 拿到许可的同时连接池被清空
                 logger.warn("no idle connection");
                 return null;
             }
+            if (!hbaseClusterConfig.isValidateOnBorrow() || connection.isValid()) {
+                break;
+            }
+            // 失效的连接在后台替换，继续在剩余的等待时间内借下一个
+            replaceConnection(connection);
+        }
+        checkoutWait.recordNanos(System.nanoTime() - startNanos);
+        connection.markLeased(System.currentTimeMillis(), hbaseClusterConfig.isLeaseStackTraceEnabled()
+                ? new Throwable("connection leased here") : null);
+        if (logger.isDebugEnabled()) {
+            logger.debug("get connection from pool success. idle size :" + available.availablePermits());
+        }
+        return connection;
+    }
 
-            logger.debug("get connection. before idle pool :" + idleConnection.size());
-            HbaseConnection connection;
-            connection = idleConnection.get(0);
-            idleConnection.remove(connection);
-            busyConnection.add(connection);
-            logger.debug("get connection. after idle pool :" + idleConnection.size());
-            logger.debug("get connection from pool success");
-            return connection;
-        } catch (InterruptedException e) {
-            // do nothing
-        } finally {
-            lock.unlock();
+    /*
+     * 借出连接，返回的租约close时归还，适合try-with-resources；没有空闲连接时返回null
+     */
+    public HbaseConnectionLease borrowConnection() {
+        HbaseConnection connection = getConnection();
+        return null == connection ? null : new HbaseConnectionLease(this, connection);
+    }
+
+    /*
+     * 先等待growWaitThresholdMillis，仍没有空闲连接时请求后台扩容，再等待剩余的waitTimeMillis
+     */
+    private boolean acquire(long startNanos) throws InterruptedException {
+        if (available.tryAcquire()) {
+            return true;
+        }
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(hbaseClusterConfig.getWaitTimeMillis());
+        long thresholdNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(hbaseClusterConfig.getGrowWaitThresholdMillis()),
+                waitNanos) - (System.nanoTime() - startNanos);
+        if (thresholdNanos > 0 && available.tryAcquire(thresholdNanos, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        requestGrow();
+        long remaining = waitNanos - (System.nanoTime() - startNanos);
+        return available.tryAcquire(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+    }
+
+    public void releaseConnection(HbaseConnection connection) {
+        if (null == connection) {
+            return;
+        }
+        if (!connection.markReleased()) {
+            logger.warn("connection is not leased or has been reclaimed, ignore release");
+            return;
+        }
+        if (connection.getGeneration() != generation) {
+            // 连接池已清空，旧连接不再放回
+            try {
+                connection.releaseConnection();
+            } catch (IOException e) {
+                logger.warn("close stale connection failed. exception:" + e.getMessage());
+            }
+            return;
+        }
+        if (hbaseClusterConfig.isValidateOnReturn() && !connection.isValid()) {
+            replaceConnection(connection);
+            return;
         }
-        return null;
+        connection.setIdleSince(System.currentTimeMillis());
+        idleConnection.offerFirst(connection);
+        available.release();
+        if (logger.isDebugEnabled()) {
+            logger.debug("release connection success. idle size :" + available.availablePermits());
+        }
+    }
+
+    public int getPoolSize() {
+        return allConnection.size();
+    }
+
+    public int getIdleCount() {
+        return available.availablePermits();
     }
 
-    public synchronized void releaseConnection(HbaseConnection connection) {
-        lock.lock();
-        logger.debug("before busy size :" + busyConnection.size() + "idle size :" + idleConnection.size());
-        idleConnection.add(connection);
-        busyConnection.remove(connection);
-        logger.debug("after busy size :" + busyConnection.size() + "idle size :" + idleConnection.size());
-        logger.debug("release connection success");
-        notEmpty.signal();
-        lock.unlock();
+    public int getBusyCount() {
+        return Math.max(0, getPoolSize() - getIdleCount());
+    }
+
+    public double getUtilization() {
+        int size = getPoolSize();
+        return 0 == size ? 0 : (double) getBusyCount() / size;
+    }
+
+    public long getCheckoutCount() {
+        return checkoutWait.getTotalCount();
+    }
+
+    public long getCheckoutTimeoutCount() {
+        return checkoutTimeoutCount.get();
+    }
+
+    public long getLeakedCount() {
+        return leakedCount.get();
+    }
+
+    public long getBrokenCount() {
+        return brokenCount.get();
+    }
+
+    public double getCheckoutWaitMeanMicros() {
+        return checkoutWait.getMean();
+    }
+
+    public long getCheckoutWaitMaxMicros() {
+        return checkoutWait.getMax();
+    }
+
+    public long getCheckoutWaitP99Micros() {
+        return checkoutWait.getPercentile(99);
+    }
+
+    /*
+     * 失效连接移出连接池，在后台重连其共享owner(共享模式)并补充一个新连接
+     */
+    private void replaceConnection(HbaseConnection connection) {
+        brokenCount.incrementAndGet();
+        logger.warn("connection is closed or aborted, replace it");
+        final HbaseConnection owner = connection.getSharedOwner();
+        synchronized (this) {
+            if (connection.getGeneration() == generation && allConnection.remove(connection)) {
+                totalCount.decrementAndGet();
+            }
+        }
+        closeQuietly(connection);
+        final int expectedGeneration = generation;
+        try {
+            maintainExecutor.execute(new Runnable() {
+                public void run() {
+                    if (null != owner) {
+                        owner.reconnectIfInvalid();
+                    }
+                    createConnection(expectedGeneration, false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("connection pool is closed, cannot replace connection");
+        }
+    }
+
+    /*
+     * 校验空闲连接，只移出失效的连接；先占用一个许可再从空闲栈中摘除，保持许可数等于空闲连接数
+     */
+    private void validateIdleConnections() {
+        for (HbaseConnection connection : allConnection) {
+            if (connection.isLeased() || connection.isValid()) {
+                continue;
+            }
+            if (!available.tryAcquire()) {
+                break;
+            }
+            if (idleConnection.removeFirstOccurrence(connection)) {
+                replaceConnection(connection);
+            } else {
+                // 已被借出，借出时会再校验
+                available.release();
+            }
+        }
+    }
+
+    public int getUnavailableTimes() {
+        return unAvailableTimes;
     }
 
     public void healthCheck() {
         logger.debug("hbase cluster health check.");
+        validateIdleConnections();
+        HbaseConnection checkConnection = healthCheckConnection;
+        if (null == checkConnection || !checkConnection.isInitialized()) {
+            logger.debug("health check connection is not initialized yet, skip this check.");
+            return;
+        }
         try {
-            Admin admin = healthCheckConnection.getConnection().getAdmin();
-            TableName tabName = TableName.valueOf(hbaseClusterConfig.getHealthCheckTestTableName());
-            admin.tableExists(tabName);
-            admin.close();
-            unAvailableTimes = 0;
-            if (unAvailableTimes >= 10) {
-                // todo
-                logger.info("hbase cluster unavailable, will reset hbase connection pool.");
-                clearPool();
-                resetConnectionPool();
-                unAvailableTimes = 0;
+            Connection conn = checkConnection.getConnection();
+            if (null == conn) {
+                throw new IOException("health check connection is not available");
             }
+            Admin admin = conn.getAdmin();
+            try {
+                TableName tabName = TableName.valueOf(hbaseClusterConfig.getHealthCheckTestTableName());
+                admin.tableExists(tabName);
+            } finally {
+                admin.close();
+            }
+            unAvailableTimes = 0;
+            notifyCircuitBreaker(true);
         } catch (IOException e) {
-            logger.warn("hbase health check failed. check times: " + unAvailableTimes + "exception:" + e.getMessage());
-            e.printStackTrace();
             unAvailableTimes++;
+            notifyCircuitBreaker(false);
+            logger.warn("hbase health check failed. check times: " + unAvailableTimes + " exception:" + e.getMessage());
+            if (unAvailableTimes % HEALTH_CHECK_RECONNECT_TIMES == 0) {
+                // 只重建健康检查连接，池中的连接由各自的校验处理
+                logger.error("hbase cluster unavailable for " + unAvailableTimes + " checks, reconnect health check connection");
+                checkConnection.reconnect();
+            }
         } catch (Exception e) {
             logger.warn("hbase health check exception:" + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private void notifyCircuitBreaker(boolean healthy) {
+        HbaseCircuitBreaker breaker = circuitBreaker;
+        if (null != breaker) {
+            breaker.onHealthCheck(healthy, unAvailableTimes);
+        }
+    }
+
     class HbaseHealthCheckThread implements Runnable {
         public void run() {
             healthCheck();
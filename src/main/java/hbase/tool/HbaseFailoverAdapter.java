@@ -0,0 +1,216 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 主备集群读切换
+ * 读请求默认访问主集群；主集群不可用(熔断打开或健康检查失败)、读失败、或读延迟的移动平均超过阈值时，
+ * 在failoverMillis内改读备集群，到期后重新尝试主集群。读失败时当次请求立即在备集群重试。
+ * 备集群的数据由hbase复制同步，可能落后于主集群；写请求始终只访问主集群
+ */
+
+public class HbaseFailoverAdapter {
+    private static final Logger logger = LogManager.getLogger(HbaseFailoverAdapter.class);
+    // 读延迟移动平均中最新一次读的权重
+    private static final double LATENCY_EWMA_WEIGHT = 0.2;
+
+    private final HbaseAdapter primary;
+    private final HbaseAdapter standby;
+    private final long latencyThresholdNanos;
+    private final long failoverNanos;
+    private final AtomicLong latencyEwmaNanos = new AtomicLong(0);
+    private final AtomicBoolean failedOver = new AtomicBoolean(false);
+    private volatile long failoverStartNanos = 0;
+    private final AtomicLong failoverCount = new AtomicLong(0);
+    private final AtomicLong standbyReadCount = new AtomicLong(0);
+
+    /*
+     * 切换参数使用主集群配置中的hbase.failover.*
+     */
+    public HbaseFailoverAdapter(HbaseAdapter primary, HbaseAdapter standby) {
+        this(primary, standby, primary.getHbaseConfig().getFailoverLatencyThresholdMillis(),
+                primary.getHbaseConfig().getFailoverMillis());
+    }
+
+    public HbaseFailoverAdapter(HbaseAdapter primary, HbaseAdapter standby,
+                                long latencyThresholdMillis, long failoverMillis) {
+        this.primary = primary;
+        this.standby = standby;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.failoverNanos = TimeUnit.MILLISECONDS.toNanos(failoverMillis);
+    }
+
+    /*
+     * 对一个集群的读，失败返回null
+     */
+    private interface ReadCall<T> {
+        T read(HbaseAdapter adapter);
+    }
+
+    private <T> T read(ReadCall<T> call) {
+        if (usePrimary()) {
+            long startNanos = System.nanoTime();
+            T result = call.read(primary);
+            if (null != result) {
+                recordPrimaryLatency(System.nanoTime() - startNanos);
+                return result;
+            }
+            failover("primary read failed");
+        }
+        standbyReadCount.incrementAndGet();
+        return call.read(standby);
+    }
+
+    private boolean usePrimary() {
+        if (failedOver.get()) {
+            if (System.nanoTime() - failoverStartNanos < failoverNanos) {
+                return false;
+            }
+            if (failedOver.compareAndSet(true, false)) {
+                latencyEwmaNanos.set(0);
+                logger.info("failover period expired, reads switch back to primary cluster " + primary.getClusterName());
+            }
+        }
+        if (!primary.isAvailable()) {
+            failover("primary cluster unavailable");
+            return false;
+        }
+        return true;
+    }
+
+    private void recordPrimaryLatency(long nanos) {
+        if (latencyThresholdNanos <= 0) {
+            return;
+        }
+        long current;
+        long next;
+        do {
+            current = latencyEwmaNanos.get();
+            next = 0 == current ? nanos : (long) (current + LATENCY_EWMA_WEIGHT * (nanos - current));
+        } while (!latencyEwmaNanos.compareAndSet(current, next));
+        if (next > latencyThresholdNanos) {
+            failover("primary read latency " + TimeUnit.NANOSECONDS.toMillis(next) + "ms over threshold");
+        }
+    }
+
+    private void failover(String reason) {
+        long now = System.nanoTime();
+        if (failedOver.compareAndSet(false, true)) {
+            failoverStartNanos = now;
+            failoverCount.incrementAndGet();
+            logger.warn(reason + ", reads switch to standby cluster " + standby.getClusterName()
+                    + " for " + TimeUnit.NANOSECONDS.toMillis(failoverNanos) + "ms");
+        }
+    }
+
+    public Result getRowByRowKey(String tableName, String rowkey) {
+        return getRowByRowKey(tableName, rowkey, null);
+    }
+
+    public Result getRowByRowKey(final String tableName, final String rowkey, final String columnFamily) {
+        return read(new ReadCall<Result>() {
+            public Result read(HbaseAdapter adapter) {
+                return adapter.getRowByRowKey(tableName, rowkey, columnFamily);
+            }
+        });
+    }
+
+    public List<Result> multiGetRowByRowKey(final String tableName, final String[] rowkeys) {
+        return read(new ReadCall<List<Result>>() {
+            public List<Result> read(HbaseAdapter adapter) {
+                return adapter.multiGetRowByRowKey(tableName, rowkeys);
+            }
+        });
+    }
+
+    public List<Result> scanRowByRange(String tableName, String beginRow, String endRow) {
+        return scanRowByRange(tableName, null, null, beginRow, endRow);
+    }
+
+    public List<Result> scanRowByRange(final String tableName, final String columnFamily, final String column,
+                                       final String beginRow, final String endRow) {
+        return read(new ReadCall<List<Result>>() {
+            public List<Result> read(HbaseAdapter adapter) {
+                return adapter.scanRowByRange(tableName, columnFamily, column, beginRow, endRow);
+            }
+        });
+    }
+
+    public List<Result> scan(final String tableName, final HbaseScanSpec spec) {
+        return read(new ReadCall<List<Result>>() {
+            public List<Result> read(HbaseAdapter adapter) {
+                return adapter.scan(tableName, spec);
+            }
+        });
+    }
+
+    public List<Result> parallelScanRowByRange(final String tableName, final String columnFamily,
+                                               final String beginRow, final String endRow, final boolean ordered) {
+        return read(new ReadCall<List<Result>>() {
+            public List<Result> read(HbaseAdapter adapter) {
+                return adapter.parallelScanRowByRange(tableName, columnFamily, beginRow, endRow, ordered);
+            }
+        });
+    }
+
+    /*
+     * 只在打开scanner失败时切换，迭代过程中的失败由调用方处理
+     */
+    public HbaseRowScanner openScanner(final String tableName, final String columnFamily,
+                                       final String beginRow, final String endRow) {
+        return read(new ReadCall<HbaseRowScanner>() {
+            public HbaseRowScanner read(HbaseAdapter adapter) {
+                return adapter.openScanner(tableName, columnFamily, beginRow, endRow);
+            }
+        });
+    }
+
+    public int putRowByRowKey(String tableName, String rowkey, String columnFamily, String column, String value) {
+        return primary.putRowByRowKey(tableName, rowkey, columnFamily, column, value);
+    }
+
+    public int multiPutRowByRowKey(String tableName, String rowkey, String columnFamily,
+                                   String[] columns, String[] values) {
+        return primary.multiPutRowByRowKey(tableName, rowkey, columnFamily, columns, values);
+    }
+
+    public int multiPut(String tableName, List<Put> putList) {
+        return primary.multiPut(tableName, putList);
+    }
+
+    public void deleteRowByRowKey(String tableName, String rowkey) {
+        primary.deleteRowByRowKey(tableName, rowkey);
+    }
+
+    public void multiDeleteRowByRowKey(String tableName, String[] rowkeys) {
+        primary.multiDeleteRowByRowKey(tableName, rowkeys);
+    }
+
+    public HbaseAdapter getPrimary() {
+        return primary;
+    }
+
+    public HbaseAdapter getStandby() {
+        return standby;
+    }
+
+    public boolean isFailedOver() {
+        return failedOver.get();
+    }
+
+    public long getFailoverCount() {
+        return failoverCount.get();
+    }
+
+    public long getStandbyReadCount() {
+        return standbyReadCount.get();
+    }
+}
@@ -0,0 +1,25 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Result;
+
+import java.util.List;
+
+/*
+ * 熔断打开期间读请求的降级，例如从本地缓存或其它存储返回数据
+ * 返回值直接作为getRowByRowKey/multiGetRowByRowKey的结果，不能阻塞太久。
+ * String接口的读请求调用String参数的方法，byte[]接口的读请求调用byte[]参数的方法，
+ * 二进制rowkey不会被转成字符串
+ */
+
+public interface HbaseFallback {
+    Result getRow(String tableName, String rowkey, String columnFamily);
+
+    List<Result> multiGetRows(String tableName, String[] rowkeys);
+
+    /*
+     * family为null表示整行
+     */
+    Result getRow(String tableName, byte[] row, HbaseColumn family);
+
+    List<Result> multiGetRows(String tableName, List<byte[]> rows);
+}
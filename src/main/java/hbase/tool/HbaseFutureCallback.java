@@ -0,0 +1,12 @@
+package hbase.tool;
+
+/*
+ * 异步操作完成回调，在完成该操作的线程中调用，不要在回调中做阻塞操作
+ * 取消、超时也通过onFailure通知
+ */
+
+public interface HbaseFutureCallback<T> {
+    void onSuccess(T result);
+
+    void onFailure(Throwable error);
+}
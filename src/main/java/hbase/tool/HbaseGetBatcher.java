@@ -0,0 +1,197 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 单行get微批合并
+ * 不同线程在很短时间内发起的单行get先进入队列，收集线程在windowMillis时间窗口内或者凑满maxBatchSize个后，
+ * 按表分组用一次table.get(List<Get>)发出，再分别完成每个调用方的future。
+ * close之后提交的、以及close时还在队列或收集中的get都以IOException结束，调用方不会一直等待
+ */
+
+public class HbaseGetBatcher {
+    private static final Logger logger = LogManager.getLogger(HbaseGetBatcher.class);
+
+    /*
+     * 批量加载，由调用方实现，结果顺序与gets一致
+     */
+    public interface BatchLoader {
+        Result[] load(String tableName, List<Get> gets) throws IOException;
+    }
+
+    private final BlockingQueue<PendingGet> queue = new LinkedBlockingQueue<PendingGet>();
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ExecutorService dispatchExecutor;
+    private final BatchLoader loader;
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong getCount = new AtomicLong(0);
+    private volatile boolean closed = false;
+    private Thread collector = null;
+
+    public HbaseGetBatcher(long windowMillis, int maxBatchSize, ExecutorService dispatchExecutor, BatchLoader loader) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.dispatchExecutor = dispatchExecutor;
+        this.loader = loader;
+    }
+
+    public void start() {
+        collector = new HbaseThreadFactory("hbase-get-batcher").newThread(new Runnable() {
+            public void run() {
+                collect();
+            }
+        });
+        collector.start();
+    }
+
+    public HbaseSettableFuture<Result> submit(String tableName, Get get) {
+        PendingGet pending = new PendingGet(tableName, get);
+        if (closed || !queue.offer(pending)) {
+            pending.future.setException(new IOException("get batcher is closed"));
+            return pending.future;
+        }
+        if (closed) {
+            // offer与close并发：close的drainTo可能已经执行过，这里自己结束，已被处理时setException不生效
+            queue.remove(pending);
+            pending.future.setException(new IOException("get batcher is closed"));
+        }
+        return pending.future;
+    }
+
+    public void close() {
+        closed = true;
+        if (null != collector) {
+            collector.interrupt();
+        }
+        List<PendingGet> remains = new ArrayList<PendingGet>();
+        queue.drainTo(remains);
+        for (PendingGet pending : remains) {
+            pending.future.setException(new IOException("get batcher is closed"));
+        }
+    }
+
+    /*
+     * 发出的批次数和合并的get数，二者之比即平均批量大小
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getGetCount() {
+        return getCount.get();
+    }
+
+    private void collect() {
+        List<PendingGet> batch = new ArrayList<PendingGet>(maxBatchSize);
+        while (!closed) {
+            try {
+                PendingGet first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingGet next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (null == next) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+                batch = new ArrayList<PendingGet>(maxBatchSize);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    // 收集到一半被close中断，这一批不再发出
+                    fail(batch, new IOException("get batcher is closed"));
+                    break;
+                }
+                // 其它原因的中断，已收集的get直接发出
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                    batch = new ArrayList<PendingGet>(maxBatchSize);
+                }
+            } catch (RuntimeException e) {
+                logger.error("get batcher collect exception:" + e.getMessage());
+                fail(batch, e);
+                batch = new ArrayList<PendingGet>(maxBatchSize);
+            }
+        }
+    }
+
+    private void dispatch(List<PendingGet> batch) {
+        Map<String, List<PendingGet>> byTable = new LinkedHashMap<String, List<PendingGet>>();
+        for (PendingGet pending : batch) {
+            List<PendingGet> list = byTable.get(pending.tableName);
+            if (null == list) {
+                list = new ArrayList<PendingGet>();
+                byTable.put(pending.tableName, list);
+            }
+            list.add(pending);
+        }
+        for (final Map.Entry<String, List<PendingGet>> entry : byTable.entrySet()) {
+            try {
+                dispatchExecutor.execute(new Runnable() {
+                    public void run() {
+                        load(entry.getKey(), entry.getValue());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fail(entry.getValue(), new IOException("get batch rejected", e));
+            }
+        }
+    }
+
+    private void load(String tableName, List<PendingGet> batch) {
+        List<Get> gets = new ArrayList<Get>(batch.size());
+        for (PendingGet pending : batch) {
+            gets.add(pending.get);
+        }
+        batchCount.incrementAndGet();
+        getCount.addAndGet(batch.size());
+        try {
+            Result[] results = loader.load(tableName, gets);
+            for (int i = 0; i < batch.size(); ++i) {
+                batch.get(i).future.set(results[i]);
+            }
+        } catch (IOException e) {
+            fail(batch, e);
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<PendingGet> batch, Throwable e) {
+        for (PendingGet pending : batch) {
+            pending.future.setException(e);
+        }
+    }
+
+    private static class PendingGet {
+        final String tableName;
+        final Get get;
+        final HbaseSettableFuture<Result> future = new HbaseSettableFuture<Result>();
+
+        PendingGet(String tableName, Get get) {
+            this.tableName = tableName;
+            this.get = get;
+        }
+    }
+}
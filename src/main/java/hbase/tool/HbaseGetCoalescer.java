@@ -0,0 +1,83 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 相同get请求合并(single-flight)
+ * 同一表/rowkey/列簇的并发get只有第一个线程真正请求hbase，其余线程等待并共享它的结果，
+ * 热点行被大量线程同时读取时(例如缓存同时过期)只占用一个连接、发一次rpc
+ */
+
+public class HbaseGetCoalescer {
+    private static final Logger logger = LogManager.getLogger(HbaseGetCoalescer.class);
+
+    private final ConcurrentMap<HbaseRowKey, HbaseSettableFuture<Result>> inFlight =
+            new ConcurrentHashMap<HbaseRowKey, HbaseSettableFuture<Result>>();
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+
+    public Result get(HbaseRowKey key, Callable<Result> loader) throws IOException {
+        HbaseSettableFuture<Result> future = inFlight.get(key);
+        if (null == future) {
+            HbaseSettableFuture<Result> created = new HbaseSettableFuture<Result>();
+            future = inFlight.putIfAbsent(key, created);
+            if (null == future) {
+                return load(key, created, loader);
+            }
+        }
+
+        coalescedCount.incrementAndGet();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("coalesced get interrupted. key:" + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("coalesced get failed. key:" + key, cause);
+        }
+    }
+
+    /*
+     * 被合并掉的请求数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private Result load(HbaseRowKey key, HbaseSettableFuture<Result> future, Callable<Result> loader)
+            throws IOException {
+        try {
+            Result result = loader.call();
+            future.set(result);
+            return result;
+        } catch (IOException e) {
+            future.setException(e);
+            throw e;
+        } catch (Exception e) {
+            logger.warn("coalesced get loader exception. key:" + key + " exception:" + e.getMessage());
+            future.setException(e);
+            throw new IOException(e);
+        } catch (Error e) {
+            future.setException(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 对冲读
+ * 主请求在延迟(主请求历史延迟的percentile分位，不低于minDelayMillis)内没有返回时，再发一个相同的请求，
+ * 两个请求各自从连接池借连接，先成功返回的结果生效；另一个还在排队时不再执行，已在执行时不中断
+ * (hbase 1.0由调用线程写rpc socket，中断会关闭到region server的连接，让同一Connection上的其它请求失败)，
+ * 让它执行完归还连接，结果丢弃；两个都失败才失败。
+ * 对冲比例用令牌桶限制：每次读累加maxRate个令牌(最多积累BUDGET_CAP个)，每次对冲消耗一个。
+ * 对冲延迟按主请求的等待时间统计：无论哪个请求先返回，都记录从主请求提交到得到结果的时间，
+ * 被对冲请求抢先或失败的慢主请求也计入，避免分位数被低估；只统计最近latencyWindowMillis，
+ * 延迟随集群状态变化，不被启动以来的历史拖住。等待结果最多timeoutMillis
+ */
+
+public class HbaseHedgedReader {
+    private static final Logger logger = LogManager.getLogger(HbaseHedgedReader.class);
+
+    // 令牌按千分之一计
+    private static final long TOKEN = 1000;
+    private static final long BUDGET_CAP = 10 * TOKEN;
+    // 每多少次读重新计算一次对冲延迟
+    private static final int DELAY_REFRESH_MASK = 127;
+    // 样本数达到此值前使用minDelayMillis
+    private static final long MIN_SAMPLES = 100;
+
+    private final ThreadPoolExecutor executor;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long timeoutNanos;
+    private final long tokensPerRead;
+    private final HbaseLatencyHistogram primaryLatency;
+    private final AtomicLong budget = new AtomicLong(BUDGET_CAP);
+    private final AtomicLong readCount = new AtomicLong(0);
+    private final AtomicLong hedgeCount = new AtomicLong(0);
+    private final AtomicLong hedgeWinCount = new AtomicLong(0);
+    private volatile long delayNanos;
+
+    public HbaseHedgedReader(int threads, double percentile, long minDelayMillis, double maxRate,
+                             long timeoutMillis, long latencyWindowMillis) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 64), new HbaseThreadFactory("hbase-hedged-read"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.tokensPerRead = (long) (maxRate * TOKEN);
+        this.delayNanos = minDelayNanos;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.primaryLatency = new HbaseLatencyHistogram(latencyWindowMillis);
+    }
+
+    /*
+     * primary和hedge必须是幂等的读，返回先成功的结果
+     */
+    public <T> T read(Callable<T> primary, Callable<T> hedge) throws IOException {
+        long reads = readCount.incrementAndGet();
+        addBudget();
+        if ((reads & DELAY_REFRESH_MASK) == 0) {
+            refreshDelay();
+        }
+
+        HedgedCall<T> call = new HedgedCall<T>();
+        long startNanos = System.nanoTime();
+        Future<?> primaryTask = call.submit(primary, true);
+        if (null == primaryTask) {
+            // 线程池已满，直接在调用线程执行，不对冲
+            return callInline(primary);
+        }
+        Future<?> hedgeTask = null;
+        try {
+            try {
+                return call.result.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (tryAcquireBudget()) {
+                    hedgeCount.incrementAndGet();
+                    hedgeTask = call.submit(hedge, false);
+                }
+            }
+            long remainNanos = timeoutNanos - (System.nanoTime() - startNanos);
+            return call.result.get(Math.max(0L, remainNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("hedged read timeout after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("hedged read interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("hedged read failed", cause);
+        } finally {
+            primaryLatency.recordNanos(System.nanoTime() - startNanos);
+            primaryTask.cancel(false);
+            if (null != hedgeTask) {
+                hedgeTask.cancel(false);
+            }
+        }
+    }
+
+    private <T> T callInline(Callable<T> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("hedged read failed", e);
+        }
+    }
+
+    private void addBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= BUDGET_CAP) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(BUDGET_CAP, current + tokensPerRead)));
+    }
+
+    private boolean tryAcquireBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void refreshDelay() {
+        if (primaryLatency.getCount() < MIN_SAMPLES) {
+            return;
+        }
+        long nanos = TimeUnit.MICROSECONDS.toNanos(primaryLatency.getPercentile(percentile));
+        delayNanos = Math.max(minDelayNanos, nanos);
+    }
+
+    public long getDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos);
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * 一次对冲读：结果取先成功的，全部已提交的请求都失败时失败
+     */
+    private class HedgedCall<T> {
+        final HbaseSettableFuture<T> result = new HbaseSettableFuture<T>();
+        final AtomicInteger submitted = new AtomicInteger(0);
+        final AtomicInteger failed = new AtomicInteger(0);
+        volatile Exception lastError = null;
+
+        Future<?> submit(final Callable<T> task, final boolean isPrimary) {
+            submitted.incrementAndGet();
+            try {
+                return executor.submit(new Runnable() {
+                    public void run() {
+                        if (result.isDone()) {
+                            return;
+                        }
+                        try {
+                            T value = task.call();
+                            if (result.set(value) && !isPrimary) {
+                                hedgeWinCount.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            lastError = e;
+                            if (failed.incrementAndGet() >= submitted.get()) {
+                                result.setException(e);
+                            } else if (logger.isDebugEnabled()) {
+                                logger.debug("hedged read attempt failed:" + e.getMessage());
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 已提交的请求可能在submitted加一之后失败，看到failed < submitted没有结束result，这里补上
+                int remain = submitted.decrementAndGet();
+                Exception error = lastError;
+                if (remain > 0 && failed.get() >= remain && null != error) {
+                    result.setException(error);
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package hbase.tool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * 无锁延迟直方图，单位微秒
+ * 按2的幂分段，每段再等分为4个桶，相对误差不超过25%；记录只做几次原子自增，不分配对象
+ * 只统计最近windowMillis内的记录：窗口分成SLICE_COUNT片轮转，过期的分片在下一次写入时清零，
+ * 实际统计的时间在窗口的(SLICE_COUNT-1)/SLICE_COUNT到1倍之间；windowMillis<=0时从创建开始累计。
+ * getTotalCount是从创建开始的总次数；读取时各字段之间不保证原子一致，分片切换时可能丢失极少量记录
+ */
+
+public class HbaseLatencyHistogram {
+    public static final long DEFAULT_WINDOW_MILLIS = 60000L;
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private static final int SLICE_COUNT = 6;
+
+    private final long sliceMillis;
+    private final Slice[] slices;
+    private final AtomicLong totalCount = new AtomicLong(0);
+
+    public HbaseLatencyHistogram() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public HbaseLatencyHistogram(long windowMillis) {
+        if (windowMillis > 0) {
+            this.sliceMillis = Math.max(1L, windowMillis / SLICE_COUNT);
+            this.slices = new Slice[SLICE_COUNT];
+        } else {
+            this.sliceMillis = 0;
+            this.slices = new Slice[1];
+        }
+        for (int i = 0; i < slices.length; ++i) {
+            slices[i] = new Slice(0 == sliceMillis ? 0 : -1);
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        totalCount.incrementAndGet();
+        currentSlice(currentEpoch()).record(micros);
+    }
+
+    /*
+     * 窗口内的记录数
+     */
+    public long getCount() {
+        long epoch = currentEpoch();
+        long n = 0;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                n += slice.count.get();
+            }
+        }
+        return n;
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        long epoch = currentEpoch();
+        long result = 0;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                result = Math.max(result, slice.max.get());
+            }
+        }
+        return result;
+    }
+
+    public double getMean() {
+        long epoch = currentEpoch();
+        long n = 0;
+        long total = 0;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                n += slice.count.get();
+                total += slice.sum.get();
+            }
+        }
+        return 0 == n ? 0 : (double) total / n;
+    }
+
+    /*
+     * 返回percentile(0~100)分位所在桶的上界
+     */
+    public long getPercentile(double percentile) {
+        long epoch = currentEpoch();
+        long n = 0;
+        long maxValue = 0;
+        int liveCount = 0;
+        Slice[] live = new Slice[slices.length];
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                live[liveCount++] = slice;
+                n += slice.count.get();
+                maxValue = Math.max(maxValue, slice.max.get());
+            }
+        }
+        if (0 == n) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            for (int j = 0; j < liveCount; ++j) {
+                seen += live[j].buckets.get(i);
+            }
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    private long currentEpoch() {
+        return 0 == sliceMillis ? 0 : System.currentTimeMillis() / sliceMillis;
+    }
+
+    private boolean isLive(Slice slice, long epoch) {
+        long sliceEpoch = slice.epoch.get();
+        return sliceEpoch >= 0 && sliceEpoch <= epoch && sliceEpoch > epoch - slices.length;
+    }
+
+    /*
+     * 分片过期时由第一个写入的线程清零，其它线程直接写入
+     */
+    private Slice currentSlice(long epoch) {
+        Slice slice = slices[(int) (epoch % slices.length)];
+        long sliceEpoch = slice.epoch.get();
+        if (sliceEpoch < epoch && slice.epoch.compareAndSet(sliceEpoch, epoch)) {
+            slice.reset();
+        }
+        return slice;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long lower = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lower + width - 1;
+    }
+
+    private static class Slice {
+        final AtomicLong epoch;
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong count = new AtomicLong(0);
+        final AtomicLong sum = new AtomicLong(0);
+        final AtomicLong max = new AtomicLong(0);
+
+        Slice(long epoch) {
+            this.epoch = new AtomicLong(epoch);
+        }
+
+        void record(long micros) {
+            buckets.incrementAndGet(bucketIndex(micros));
+            count.incrementAndGet();
+            sum.addAndGet(micros);
+            long current = max.get();
+            while (micros > current && !max.compareAndSet(current, micros)) {
+                current = max.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
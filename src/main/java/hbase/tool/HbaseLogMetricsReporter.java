@@ -0,0 +1,38 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/*
+ * 把指标写到log4j日志，只输出统计窗口内有调用的操作
+ */
+
+public class HbaseLogMetricsReporter implements HbaseMetricsReporter {
+    private static final Logger logger = LogManager.getLogger(HbaseLogMetricsReporter.class);
+
+    public void report(HbaseMetrics metrics) {
+        HbasePoolMXBean pool = metrics.getPool();
+        if (null != pool) {
+            logger.info("hbase pool [" + metrics.getName() + "] size:" + pool.getPoolSize()
+                    + " idle:" + pool.getIdleCount() + " busy:" + pool.getBusyCount()
+                    + " checkout:" + pool.getCheckoutCount() + " timeout:" + pool.getCheckoutTimeoutCount()
+                    + " leaked:" + pool.getLeakedCount() + " broken:" + pool.getBrokenCount()
+                    + " wait mean:" + (long) pool.getCheckoutWaitMeanMicros() + "us"
+                    + " p99:" + pool.getCheckoutWaitP99Micros() + "us"
+                    + " max:" + pool.getCheckoutWaitMaxMicros() + "us");
+        }
+        for (HbaseOperationStats stats : metrics.getOperationStats()) {
+            if (0 == stats.getWindowCount()) {
+                continue;
+            }
+            logger.info("hbase op [" + metrics.getName() + "] " + stats.getTableName() + "." + stats.getOperation()
+                    + " count:" + stats.getCount() + " error:" + stats.getErrorCount()
+                    + " window count:" + stats.getWindowCount()
+                    + " mean:" + (long) stats.getMeanMicros() + "us"
+                    + " p50:" + stats.getP50Micros() + "us"
+                    + " p99:" + stats.getP99Micros() + "us"
+                    + " p999:" + stats.getP999Micros() + "us"
+                    + " max:" + stats.getMaxMicros() + "us");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package hbase.tool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 指标汇总：连接池统计 + 按表、按操作的延迟直方图和错误数
+ * 开启jmx时注册为hbase.tool:type=ConnectionPool,name=<name>和
+ * hbase.tool:type=Operation,name=<name>,table=<表名>,operation=<操作>；
+ * 记录路径只有一次ConcurrentHashMap查找和几次原子操作，只在某张表第一次出现时创建统计对象。
+ * 延迟只统计最近latencyWindowMillis，次数和错误数从启动开始累计
+ */
+
+public class HbaseMetrics {
+    private static final Logger logger = LogManager.getLogger(HbaseMetrics.class);
+    private static final String JMX_DOMAIN = "hbase.tool";
+
+    private final String name;
+    private final boolean jmxEnabled;
+    private final long latencyWindowMillis;
+    // 表名 -> 按HbaseOperation.ordinal()索引的统计
+    private final ConcurrentMap<String, HbaseOperationStats[]> tableStats =
+            new ConcurrentHashMap<String, HbaseOperationStats[]>();
+    private final List<HbaseMetricsReporter> reporters = new CopyOnWriteArrayList<HbaseMetricsReporter>();
+    private final List<ObjectName> registeredNames = new CopyOnWriteArrayList<ObjectName>();
+    private volatile HbasePoolMXBean pool = null;
+    private ScheduledExecutorService reportExecutor = null;
+
+    public HbaseMetrics(String name, boolean jmxEnabled, long latencyWindowMillis) {
+        this.name = name;
+        this.jmxEnabled = jmxEnabled;
+        this.latencyWindowMillis = latencyWindowMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setPool(HbasePoolMXBean pool) {
+        this.pool = pool;
+        register("type=ConnectionPool,name=" + ObjectName.quote(name), pool);
+    }
+
+    public void setCircuitBreaker(HbaseCircuitBreakerMXBean circuitBreaker) {
+        register("type=CircuitBreaker,name=" + ObjectName.quote(name), circuitBreaker);
+    }
+
+    public HbasePoolMXBean getPool() {
+        return pool;
+    }
+
+    public void recordOperation(String tableName, HbaseOperation operation, long startNanos, boolean success) {
+        getOperationStats(tableName, operation).record(System.nanoTime() - startNanos, success);
+    }
+
+    public HbaseOperationStats getOperationStats(String tableName, HbaseOperation operation) {
+        if (null == tableName) {
+            tableName = "";
+        }
+        HbaseOperationStats[] stats = tableStats.get(tableName);
+        if (null == stats) {
+            stats = createTableStats(tableName);
+        }
+        return stats[operation.ordinal()];
+    }
+
+    public List<HbaseOperationStats> getOperationStats() {
+        List<HbaseOperationStats> list = new ArrayList<HbaseOperationStats>();
+        for (HbaseOperationStats[] stats : tableStats.values()) {
+            for (HbaseOperationStats operationStats : stats) {
+                list.add(operationStats);
+            }
+        }
+        return list;
+    }
+
+    private HbaseOperationStats[] createTableStats(String tableName) {
+        HbaseOperation[] operations = HbaseOperation.values();
+        HbaseOperationStats[] stats = new HbaseOperationStats[operations.length];
+        for (int i = 0; i < operations.length; ++i) {
+            stats[i] = new HbaseOperationStats(tableName, operations[i], latencyWindowMillis);
+        }
+        HbaseOperationStats[] existing = tableStats.putIfAbsent(tableName, stats);
+        if (null != existing) {
+            return existing;
+        }
+        for (HbaseOperationStats operationStats : stats) {
+            register("type=Operation,name=" + ObjectName.quote(name) + ",table=" + ObjectName.quote(tableName)
+                    + ",operation=" + operationStats.getOperation(), operationStats);
+        }
+        return stats;
+    }
+
+    public void addReporter(HbaseMetricsReporter reporter) {
+        reporters.add(reporter);
+    }
+
+    /*
+     * 每intervalSeconds秒调用一次所有reporter，<=0时不定时输出
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (intervalSeconds <= 0 || null != reportExecutor) {
+            return;
+        }
+        reportExecutor = new ScheduledThreadPoolExecutor(1, new HbaseThreadFactory("hbase-metrics-report"));
+        reportExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                report();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void report() {
+        for (HbaseMetricsReporter reporter : reporters) {
+            try {
+                reporter.report(this);
+            } catch (RuntimeException e) {
+                logger.warn("hbase metrics report exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * 停止定时输出并注销jmx
+     */
+    public synchronized void close() {
+        if (null != reportExecutor) {
+            reportExecutor.shutdownNow();
+            reportExecutor = null;
+        }
+        if (!jmxEnabled) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (Exception e) {
+                logger.warn("unregister mbean " + objectName + " failed. exception:" + e.getMessage());
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private void register(String properties, Object mbean) {
+        if (!jmxEnabled || null == mbean) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":" + properties);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            registeredNames.add(objectName);
+        } catch (Exception e) {
+            logger.warn("register mbean failed. properties:" + properties + " exception:" + e.getMessage());
+        }
+    }
+}
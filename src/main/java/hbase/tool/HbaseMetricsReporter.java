@@ -0,0 +1,10 @@
+package hbase.tool;
+
+/*
+ * 指标输出接口，由HbaseMetrics按hbase.metrics.report.interval.second定时调用
+ * 可以实现为写日志、推送到监控系统等
+ */
+
+public interface HbaseMetricsReporter {
+    void report(HbaseMetrics metrics);
+}
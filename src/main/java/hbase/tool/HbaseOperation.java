@@ -0,0 +1,31 @@
+package hbase.tool;
+
+/*
+ * HbaseAdapter对外操作的种类，用于分操作统计延迟和错误数
+ */
+
+public enum HbaseOperation {
+    CREATE_TABLE("createTable"),
+    DROP_TABLE("dropTable"),
+    EXISTS("exists"),
+    GET("get"),
+    MULTI_GET("multiGet"),
+    PUT("put"),
+    MULTI_PUT("multiPut"),
+    BUFFERED_PUT("bufferedPut"),
+    DELETE("delete"),
+    MULTI_DELETE("multiDelete"),
+    SCAN("scan"),
+    PARALLEL_SCAN("parallelScan"),
+    AGGREGATE("aggregate");
+
+    private final String name;
+
+    HbaseOperation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,28 @@
+package hbase.tool;
+
+/*
+ * 单表单操作的统计，延迟单位微秒
+ * count/errorCount从启动开始累计，windowCount和延迟只统计最近的统计窗口
+ */
+
+public interface HbaseOperationMXBean {
+    String getTableName();
+
+    String getOperation();
+
+    long getCount();
+
+    long getWindowCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    long getMaxMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+}
@@ -0,0 +1,40 @@
+package hbase.tool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 某张表某种操作的延迟直方图和错误数
+ * 次数、错误数从创建开始累计，窗口内次数和延迟分位只统计最近latencyWindowMillis
+ */
+
+public class HbaseOperationStats implements HbaseOperationMXBean {
+    private final String tableName;
+    private final HbaseOperation operation;
+    private final HbaseLatencyHistogram latency;
+    private final AtomicLong errorCount = new AtomicLong(0);
+
+    public HbaseOperationStats(String tableName, HbaseOperation operation, long latencyWindowMillis) {
+        this.tableName = tableName;
+        this.operation = operation;
+        this.latency = new HbaseLatencyHistogram(latencyWindowMillis);
+    }
+
+    public void record(long nanos, boolean success) {
+        latency.recordNanos(nanos);
+        if (!success) {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    public HbaseLatencyHistogram getLatency() { return latency; }
+    public String getTableName() { return tableName; }
+    public String getOperation() { return operation.getName(); }
+    public long getCount() { return latency.getTotalCount(); }
+    public long getWindowCount() { return latency.getCount(); }
+    public long getErrorCount() { return errorCount.get(); }
+    public double getMeanMicros() { return latency.getMean(); }
+    public long getMaxMicros() { return latency.getMax(); }
+    public long getP50Micros() { return latency.getPercentile(50); }
+    public long getP99Micros() { return latency.getPercentile(99); }
+    public long getP999Micros() { return latency.getPercentile(99.9); }
+}
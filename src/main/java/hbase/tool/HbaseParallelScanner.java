@@ -0,0 +1,205 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * 按region边界并行scan
+ * 把[startRow, stopRow)按表的region边界切成多个子范围，在有界线程池中并发扫描，
+ * 所有子scan共用一个池化连接(hbase Connection线程安全，每个子scan使用自己的Table)。
+ * 提前结束(失败、handler返回false)时通过stopped标记让子scan在下一次next()前退出，不中断执行中的线程：
+ * hbase 1.0由调用线程写rpc socket，中断会关闭到region server的连接，让同一Connection上的其它请求失败
+ */
+
+public class HbaseParallelScanner {
+    private static final Logger logger = LogManager.getLogger(HbaseParallelScanner.class);
+
+    private final HbaseConnectionPool connectionPool;
+    private final ExecutorService executor;
+
+    public HbaseParallelScanner(HbaseConnectionPool connectionPool, ExecutorService executor) {
+        this.connectionPool = connectionPool;
+        this.executor = executor;
+    }
+
+    /*
+     * ordered为true时结果按rowkey顺序合并，否则按子scan完成的先后追加
+     */
+    public List<Result> scan(String tableName, Scan scan, boolean ordered) throws IOException {
+        final List<Result> unorderedResults = Collections.synchronizedList(new ArrayList<Result>());
+        HbaseRowHandler collector = null;
+        if (!ordered) {
+            collector = new HbaseRowHandler() {
+                public boolean handle(Result result) {
+                    unorderedResults.add(result);
+                    return true;
+                }
+            };
+        }
+        List<List<Result>> regionResults = run(tableName, scan, collector);
+        if (!ordered) {
+            return new ArrayList<Result>(unorderedResults);
+        }
+        int size = 0;
+        for (List<Result> list : regionResults) {
+            size += list.size();
+        }
+        List<Result> results = new ArrayList<Result>(size);
+        for (List<Result> list : regionResults) {
+            results.addAll(list);
+        }
+        return results;
+    }
+
+    /*
+     * 每行回调一次handler，回调之间互斥但不保证顺序，handler返回false时所有子scan停止
+     * 返回处理的行数
+     */
+    public long scan(String tableName, Scan scan, HbaseRowHandler handler) throws IOException {
+        final HbaseRowHandler target = handler;
+        final long[] count = new long[1];
+        run(tableName, scan, new HbaseRowHandler() {
+            public synchronized boolean handle(Result result) {
+                ++count[0];
+                return target.handle(result);
+            }
+        });
+        return count[0];
+    }
+
+    /*
+     * handler为null时每个子scan返回自己的结果列表，否则结果交给handler，返回空列表
+     */
+    private List<List<Result>> run(String tableName, Scan scan, final HbaseRowHandler handler) throws IOException {
+        HbaseConnection conn = connectionPool.getConnection();
+        if (null == conn) {
+            throw new IOException("get connection from pool failed");
+        }
+        List<Future<List<Result>>> futures = new ArrayList<Future<List<Result>>>();
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        try {
+            final Connection connection = conn.getConnection();
+            final TableName tabName = HbaseTableNames.valueOf(tableName);
+            List<Scan> subScans;
+            RegionLocator locator = connection.getRegionLocator(tabName);
+            try {
+                subScans = splitByRegion(scan, locator.getStartEndKeys());
+            } finally {
+                locator.close();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("parallel scan table " + tableName + " split into " + subScans.size() + " region scans");
+            }
+
+            for (final Scan subScan : subScans) {
+                futures.add(executor.submit(new Callable<List<Result>>() {
+                    public List<Result> call() throws IOException {
+                        return scanRegion(connection, tabName, subScan, handler, stopped);
+                    }
+                }));
+            }
+
+            List<List<Result>> results = new ArrayList<List<Result>>(futures.size());
+            for (Future<List<Result>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("parallel scan interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("parallel scan failed", cause);
+        } finally {
+            stopped.set(true);
+            for (Future<List<Result>> future : futures) {
+                future.cancel(false);
+            }
+            connectionPool.releaseConnection(conn);
+        }
+    }
+
+    private List<Result> scanRegion(Connection connection, TableName tabName, Scan scan,
+                                    HbaseRowHandler handler, AtomicBoolean stopped) throws IOException {
+        List<Result> results = new ArrayList<Result>();
+        if (stopped.get()) {
+            return results;
+        }
+        Table table = connection.getTable(tabName);
+        ResultScanner scanner = null;
+        try {
+            scanner = table.getScanner(scan);
+            Result result;
+            while (!stopped.get() && null != (result = scanner.next())) {
+                if (null == handler) {
+                    results.add(result);
+                } else if (!handler.handle(result)) {
+                    stopped.set(true);
+                }
+            }
+        } finally {
+            if (null != scanner) {
+                scanner.close();
+            }
+            table.close();
+        }
+        return results;
+    }
+
+    /*
+     * 用region的[startKey, endKey)与scan的[startRow, stopRow)求交集，空数组表示无边界
+     */
+    static List<Scan> splitByRegion(Scan scan, Pair<byte[][], byte[][]> startEndKeys) throws IOException {
+        byte[] scanStart = scan.getStartRow();
+        byte[] scanStop = scan.getStopRow();
+        byte[][] startKeys = startEndKeys.getFirst();
+        byte[][] endKeys = startEndKeys.getSecond();
+        List<Scan> scans = new ArrayList<Scan>();
+        for (int i = 0; i < startKeys.length; ++i) {
+            byte[] regionStart = startKeys[i];
+            byte[] regionEnd = endKeys[i];
+            if (scanStop.length > 0 && Bytes.compareTo(regionStart, scanStop) >= 0) {
+                continue;
+            }
+            if (regionEnd.length > 0 && Bytes.compareTo(regionEnd, scanStart) <= 0) {
+                continue;
+            }
+            byte[] subStart = Bytes.compareTo(regionStart, scanStart) > 0 ? regionStart : scanStart;
+            byte[] subStop;
+            if (regionEnd.length == 0) {
+                subStop = scanStop;
+            } else if (scanStop.length == 0) {
+                subStop = regionEnd;
+            } else {
+                subStop = Bytes.compareTo(regionEnd, scanStop) < 0 ? regionEnd : scanStop;
+            }
+            Scan subScan = new Scan(scan);
+            subScan.setStartRow(subStart);
+            subScan.setStopRow(subStop);
+            scans.add(subScan);
+        }
+        return scans;
+    }
+}
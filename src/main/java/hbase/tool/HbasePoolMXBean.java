@@ -0,0 +1,29 @@
+package hbase.tool;
+
+/*
+ * 连接池的容量、使用率和借连接等待统计，等待时间单位微秒
+ */
+
+public interface HbasePoolMXBean {
+    int getPoolSize();
+
+    int getIdleCount();
+
+    int getBusyCount();
+
+    double getUtilization();
+
+    long getCheckoutCount();
+
+    long getCheckoutTimeoutCount();
+
+    long getLeakedCount();
+
+    long getBrokenCount();
+
+    double getCheckoutWaitMeanMicros();
+
+    long getCheckoutWaitMaxMicros();
+
+    long getCheckoutWaitP99Micros();
+}
@@ -0,0 +1,281 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * 客户端行缓存(read-through)
+ * 按表名+rowkey缓存get结果，同一行不同列簇的结果放在同一个缓存项中，写入或删除该行时整行失效。
+ * 分段LRU，按结果大小计算权重，总权重超过上限时淘汰最久未访问的行；每张表可以单独设置ttl
+ */
+
+public class HbaseRowCache {
+    private static final Logger logger = LogManager.getLogger(HbaseRowCache.class);
+
+    private static final int SEGMENT_COUNT = 16;
+    // 整行结果在缓存项中的列簇key
+    private static final String WHOLE_ROW = "";
+    // 每个缓存结果的固定开销估算
+    private static final long ENTRY_OVERHEAD = 96;
+    private static final long CELL_OVERHEAD = 48;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final long defaultTtlMillis;
+    private final ConcurrentMap<String, Long> tableTtlMillis = new ConcurrentHashMap<String, Long>();
+
+    public HbaseRowCache(long maxWeightBytes, long defaultTtlMillis) {
+        this.defaultTtlMillis = defaultTtlMillis;
+        long segmentWeight = Math.max(1, maxWeightBytes / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; ++i) {
+            segments[i] = new Segment(segmentWeight);
+        }
+    }
+
+    /*
+     * 设置某张表的缓存有效期，<=0表示该表不缓存
+     */
+    public void setTableTtl(String tableName, long ttlMillis) {
+        tableTtlMillis.put(tableName, ttlMillis);
+    }
+
+    public boolean isCacheable(String tableName) {
+        return getTtl(tableName) > 0;
+    }
+
+    /*
+     * 查询缓存，未命中或已过期返回null
+     */
+    public Result get(String tableName, byte[] row, String family) {
+        HbaseRowKey key = new HbaseRowKey(tableName, row);
+        return segmentFor(key).get(key, null == family ? WHOLE_ROW : family, System.currentTimeMillis());
+    }
+
+    /*
+     * 从hbase加载前取得加载戳，put时如果期间该段发生过失效则放弃缓存，避免旧数据覆盖新的写入
+     */
+    public long loadStamp(String tableName, byte[] row) {
+        return segmentFor(new HbaseRowKey(tableName, row)).loadStamp();
+    }
+
+    public void put(String tableName, byte[] row, String family, Result result, long loadStamp) {
+        long ttl = getTtl(tableName);
+        if (ttl <= 0 || null == result) {
+            return;
+        }
+        HbaseRowKey key = new HbaseRowKey(tableName, row);
+        segmentFor(key).put(key, null == family ? WHOLE_ROW : family, result,
+                System.currentTimeMillis() + ttl, weigh(result), loadStamp);
+    }
+
+    public void invalidate(String tableName, byte[] row) {
+        HbaseRowKey key = new HbaseRowKey(tableName, row);
+        segmentFor(key).invalidate(key);
+    }
+
+    public void invalidateTable(String tableName) {
+        for (Segment segment : segments) {
+            segment.invalidateTable(tableName);
+        }
+        logger.debug("row cache invalidated. table:" + tableName);
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.invalidateTable(null);
+        }
+    }
+
+    public long getHitCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.hitCount;
+            }
+        }
+        return count;
+    }
+
+    public long getMissCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.missCount;
+            }
+        }
+        return count;
+    }
+
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.evictionCount;
+            }
+        }
+        return count;
+    }
+
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public int getRowCount() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.rows.size();
+            }
+        }
+        return size;
+    }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return 0 == total ? 0 : (double) hits / total;
+    }
+
+    private long getTtl(String tableName) {
+        Long ttl = tableTtlMillis.get(tableName);
+        return null == ttl ? defaultTtlMillis : ttl;
+    }
+
+    private Segment segmentFor(HbaseRowKey key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    private static long weigh(Result result) {
+        long weight = ENTRY_OVERHEAD;
+        Cell[] cells = result.rawCells();
+        if (null != cells) {
+            for (Cell cell : cells) {
+                weight += CELL_OVERHEAD + cell.getRowLength() + cell.getFamilyLength()
+                        + cell.getQualifierLength() + cell.getValueLength();
+            }
+        }
+        return weight;
+    }
+
+    private static class CachedResult {
+        final Result result;
+        final long expireTime;
+        final long weight;
+
+        CachedResult(Result result, long expireTime, long weight) {
+            this.result = result;
+            this.expireTime = expireTime;
+            this.weight = weight;
+        }
+    }
+
+    /*
+     * 一行的缓存项，key为列簇(整行为WHOLE_ROW)
+     */
+    private static class CachedRow {
+        final Map<String, CachedResult> families = new HashMap<String, CachedResult>(4);
+        long weight = 0;
+    }
+
+    private static class Segment {
+        final LinkedHashMap<HbaseRowKey, CachedRow> rows = new LinkedHashMap<HbaseRowKey, CachedRow>(64, 0.75f, true);
+        final long maxWeight;
+        long weight = 0;
+        long invalidations = 0;
+        long hitCount = 0;
+        long missCount = 0;
+        long evictionCount = 0;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized Result get(HbaseRowKey key, String family, long now) {
+            CachedRow row = rows.get(key);
+            CachedResult cached = null == row ? null : row.families.get(family);
+            if (null == cached) {
+                ++missCount;
+                return null;
+            }
+            if (cached.expireTime <= now) {
+                row.families.remove(family);
+                row.weight -= cached.weight;
+                weight -= cached.weight;
+                if (row.families.isEmpty()) {
+                    rows.remove(key);
+                }
+                ++missCount;
+                return null;
+            }
+            ++hitCount;
+            return cached.result;
+        }
+
+        synchronized long loadStamp() {
+            return invalidations;
+        }
+
+        synchronized void put(HbaseRowKey key, String family, Result result, long expireTime, long resultWeight,
+                              long loadStamp) {
+            if (loadStamp != invalidations || resultWeight > maxWeight) {
+                return;
+            }
+            CachedRow row = rows.get(key);
+            if (null == row) {
+                row = new CachedRow();
+                rows.put(key, row);
+            }
+            CachedResult old = row.families.put(family, new CachedResult(result, expireTime, resultWeight));
+            long delta = resultWeight - (null == old ? 0 : old.weight);
+            row.weight += delta;
+            weight += delta;
+
+            Iterator<Map.Entry<HbaseRowKey, CachedRow>> it = rows.entrySet().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                Map.Entry<HbaseRowKey, CachedRow> eldest = it.next();
+                weight -= eldest.getValue().weight;
+                it.remove();
+                ++evictionCount;
+            }
+        }
+
+        synchronized void invalidate(HbaseRowKey key) {
+            ++invalidations;
+            CachedRow row = rows.remove(key);
+            if (null != row) {
+                weight -= row.weight;
+            }
+        }
+
+        /*
+         * tableName为null时清空整个段
+         */
+        synchronized void invalidateTable(String tableName) {
+            ++invalidations;
+            Iterator<Map.Entry<HbaseRowKey, CachedRow>> it = rows.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<HbaseRowKey, CachedRow> entry = it.next();
+                if (null == tableName || tableName.equals(entry.getKey().getTableName())) {
+                    weight -= entry.getValue().weight;
+                    it.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Result;
+
+/*
+ * 流式scan的行回调，每扫描到一行调用一次，返回false则提前结束扫描并释放连接
+ */
+
+public interface HbaseRowHandler {
+    boolean handle(Result result);
+}
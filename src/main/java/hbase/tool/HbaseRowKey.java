@@ -0,0 +1,59 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/*
+ * 表名+rowkey(+列簇)组成的key，用于客户端行缓存等按行索引的场景
+ */
+
+public final class HbaseRowKey {
+    private final String tableName;
+    private final byte[] row;
+    private final String family;
+    private final int hash;
+
+    public HbaseRowKey(String tableName, byte[] row) {
+        this(tableName, row, null);
+    }
+
+    public HbaseRowKey(String tableName, byte[] row, String family) {
+        this.tableName = tableName;
+        this.row = row;
+        this.family = family;
+        int h = tableName.hashCode();
+        h = 31 * h + Arrays.hashCode(row);
+        h = 31 * h + (null == family ? 0 : family.hashCode());
+        this.hash = h;
+    }
+
+    public String getTableName() { return tableName; }
+    public byte[] getRow() { return row; }
+    public String getFamily() { return family; }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HbaseRowKey)) {
+            return false;
+        }
+        HbaseRowKey other = (HbaseRowKey) obj;
+        return hash == other.hash
+                && tableName.equals(other.tableName)
+                && Arrays.equals(row, other.row)
+                && (null == family ? null == other.family : family.equals(other.family));
+    }
+
+    @Override
+    public String toString() {
+        return tableName + "/" + Bytes.toStringBinary(row) + (null == family ? "" : "/" + family);
+    }
+}
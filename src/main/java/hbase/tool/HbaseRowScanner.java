@@ -0,0 +1,116 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * 流式scan结果，逐行从hbase拉取，不在内存中保存全部结果
+ * 扫描期间持有一个池化连接，读完最后一行或者调用close时归还，可用于try-with-resources
+ */
+
+public class HbaseRowScanner implements Closeable, Iterable<Result> {
+    private static final Logger logger = LogManager.getLogger(HbaseRowScanner.class);
+
+    private final HbaseConnectionPool connectionPool;
+    private final HbaseConnection conn;
+    private final Table table;
+    private final ResultScanner scanner;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // 最多返回的行数，0表示不限
+    private long limit = 0L;
+    private long count = 0L;
+
+    HbaseRowScanner(HbaseConnectionPool connectionPool, HbaseConnection conn, Table table, ResultScanner scanner) {
+        this.connectionPool = connectionPool;
+        this.conn = conn;
+        this.table = table;
+        this.scanner = scanner;
+    }
+
+    void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    /*
+     * 返回下一行，没有数据时返回null并自动释放连接
+     */
+    public Result next() throws IOException {
+        if (closed.get()) {
+            return null;
+        }
+        if (limit > 0 && count >= limit) {
+            close();
+            return null;
+        }
+        Result result;
+        try {
+            result = scanner.next();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        if (null == result) {
+            close();
+        } else {
+            ++count;
+        }
+        return result;
+    }
+
+    public Iterator<Result> iterator() {
+        return new Iterator<Result>() {
+            private Result nextResult = null;
+
+            public boolean hasNext() {
+                if (null == nextResult) {
+                    try {
+                        nextResult = HbaseRowScanner.this.next();
+                    } catch (IOException e) {
+                        logger.error("hbase scan exception. " + e.getMessage());
+                        throw new RuntimeException(e);
+                    }
+                }
+                return null != nextResult;
+            }
+
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Result result = nextResult;
+                nextResult = null;
+                return result;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        scanner.close();
+        try {
+            table.close();
+        } catch (IOException e) {
+            logger.warn("close table failed. exception:" + e.getMessage());
+        }
+        connectionPool.releaseConnection(conn);
+    }
+}
@@ -0,0 +1,219 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * scan参数：范围、列投影、过滤器、行数上限、时间范围以及caching/batch/maxResultSize/cacheBlocks
+ * 只取需要的列可以减少网络传输；一次性的大范围导出建议关闭cacheBlocks，避免冲掉region server的热点数据块。
+ * 未设置的caching/batch使用hbase.scan.caching/hbase.scan.batch配置。
+ * 行数上限通过PageFilter下推到region server(每个region各自计数)，客户端再截断到limit行
+ */
+
+public class HbaseScanSpec {
+    private byte[] startRow = null;
+    private byte[] stopRow = null;
+    private final List<HbaseColumn> columns = new ArrayList<HbaseColumn>();
+    private final List<Filter> filters = new ArrayList<Filter>();
+    private boolean mustPassAll = true;
+    private long limit = 0L;
+    private long minTimestamp = -1L;
+    private long maxTimestamp = -1L;
+    private int maxVersions = 0;
+    private int caching = 0;
+    private int batch = 0;
+    private long maxResultSize = 0L;
+    private boolean cacheBlocks = true;
+
+    /*
+     * 扫描范围[beginRow, endRow]，与scanRowByRange一致
+     */
+    public static HbaseScanSpec range(String beginRow, String endRow) {
+        return new HbaseScanSpec().setStartRow(Bytes.toBytes(beginRow)).setStopRow(Bytes.toBytes(endRow + 0));
+    }
+
+    /*
+     * 扫描范围[startRow, stopRow)，null表示不限
+     */
+    public HbaseScanSpec setStartRow(byte[] startRow) {
+        this.startRow = startRow;
+        return this;
+    }
+
+    public HbaseScanSpec setStopRow(byte[] stopRow) {
+        this.stopRow = stopRow;
+        return this;
+    }
+
+    /*
+     * 只返回该列簇或该列，可多次调用；不调用时返回整行
+     */
+    public HbaseScanSpec addColumn(HbaseColumn column) {
+        columns.add(column);
+        return this;
+    }
+
+    public HbaseScanSpec addFamily(String family) {
+        return addColumn(HbaseColumn.family(family));
+    }
+
+    public HbaseScanSpec addColumn(String family, String qualifier) {
+        return addColumn(HbaseColumn.of(family, qualifier));
+    }
+
+    /*
+     * 多个过滤器默认都满足才返回(MUST_PASS_ALL)，setMustPassAll(false)时满足任一即可
+     */
+    public HbaseScanSpec addFilter(Filter filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    public HbaseScanSpec setMustPassAll(boolean mustPassAll) {
+        this.mustPassAll = mustPassAll;
+        return this;
+    }
+
+    /*
+     * 最多返回的行数，0表示不限；顺序scan时是范围内的前limit行，
+     * 并行scan/aggregate时是各region最先返回的任意limit行
+     */
+    public HbaseScanSpec setLimit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /*
+     * 时间范围[minTimestamp, maxTimestamp)
+     */
+    public HbaseScanSpec setTimeRange(long minTimestamp, long maxTimestamp) {
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        return this;
+    }
+
+    public HbaseScanSpec setMaxVersions(int maxVersions) {
+        this.maxVersions = maxVersions;
+        return this;
+    }
+
+    /*
+     * 每次rpc返回的行数
+     */
+    public HbaseScanSpec setCaching(int caching) {
+        this.caching = caching;
+        return this;
+    }
+
+    /*
+     * 每个Result最多包含的列数，宽行分多次返回
+     */
+    public HbaseScanSpec setBatch(int batch) {
+        this.batch = batch;
+        return this;
+    }
+
+    /*
+     * 每次rpc返回的最大字节数
+     */
+    public HbaseScanSpec setMaxResultSize(long maxResultSize) {
+        this.maxResultSize = maxResultSize;
+        return this;
+    }
+
+    public HbaseScanSpec setCacheBlocks(boolean cacheBlocks) {
+        this.cacheBlocks = cacheBlocks;
+        return this;
+    }
+
+    public long getLimit() { return limit; }
+    public List<HbaseColumn> getColumns() { return columns; }
+    public List<Filter> getFilters() { return filters; }
+    public int getCaching() { return caching; }
+    public int getBatch() { return batch; }
+    public long getMaxResultSize() { return maxResultSize; }
+    public boolean isCacheBlocks() { return cacheBlocks; }
+
+    /*
+     * 生成hbase Scan，defaultCaching/defaultBatch为配置中的默认值
+     */
+    Scan toScan(int defaultCaching, int defaultBatch) throws IOException {
+        return toScan(defaultCaching, defaultBatch, Collections.<Filter>emptyList());
+    }
+
+    /*
+     * requiredFilters与用户的过滤器是MUST_PASS_ALL关系，用于聚合等内部场景
+     */
+    Scan toScan(int defaultCaching, int defaultBatch, List<Filter> requiredFilters) throws IOException {
+        Scan scan = new Scan();
+        if (null != startRow) {
+            scan.setStartRow(startRow);
+        }
+        if (null != stopRow) {
+            scan.setStopRow(stopRow);
+        }
+        for (HbaseColumn column : columns) {
+            if (null == column.getQualifierBytes()) {
+                scan.addFamily(column.getFamilyBytes());
+            } else {
+                scan.addColumn(column.getFamilyBytes(), column.getQualifierBytes());
+            }
+        }
+        List<Filter> scanFilters = new ArrayList<Filter>(filters);
+        Filter filter = null;
+        if (!scanFilters.isEmpty()) {
+            filter = 1 == scanFilters.size() ? scanFilters.get(0) : new FilterList(mustPassAll
+                    ? FilterList.Operator.MUST_PASS_ALL : FilterList.Operator.MUST_PASS_ONE, scanFilters);
+        }
+        if (!requiredFilters.isEmpty()) {
+            List<Filter> allFilters = new ArrayList<Filter>(requiredFilters.size() + 1);
+            if (null != filter) {
+                allFilters.add(filter);
+            }
+            allFilters.addAll(requiredFilters);
+            filter = 1 == allFilters.size() ? allFilters.get(0)
+                    : new FilterList(FilterList.Operator.MUST_PASS_ALL, allFilters);
+        }
+        if (limit > 0) {
+            // PageFilter要对其它过滤器的结果计数，放在MUST_PASS_ALL的最后
+            PageFilter pageFilter = new PageFilter(limit);
+            filter = null == filter ? pageFilter
+                    : new FilterList(FilterList.Operator.MUST_PASS_ALL, Arrays.asList(filter, pageFilter));
+        }
+        if (null != filter) {
+            scan.setFilter(filter);
+        }
+        if (minTimestamp >= 0 && maxTimestamp > minTimestamp) {
+            scan.setTimeRange(minTimestamp, maxTimestamp);
+        }
+        if (maxVersions > 0) {
+            scan.setMaxVersions(maxVersions);
+        }
+        int scanCaching = caching > 0 ? caching : defaultCaching;
+        if (limit > 0 && limit < Integer.MAX_VALUE && (scanCaching <= 0 || scanCaching > limit)) {
+            // 行数少于一次rpc的caching时，不多取
+            scanCaching = (int) limit;
+        }
+        if (scanCaching > 0) {
+            scan.setCaching(scanCaching);
+        }
+        int scanBatch = batch > 0 ? batch : defaultBatch;
+        if (scanBatch > 0) {
+            scan.setBatch(scanBatch);
+        }
+        if (maxResultSize > 0) {
+            scan.setMaxResultSize(maxResultSize);
+        }
+        scan.setCacheBlocks(cacheBlocks);
+        return scan;
+    }
+}
@@ -0,0 +1,131 @@
+package hbase.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 可由任意线程设置结果的Future，结果只能被设置一次，先到先得
+ * 完成(包括异常和取消)时依次调用通过addCallback注册的回调
+ */
+
+public class HbaseSettableFuture<T> implements Future<T> {
+    private static final int PENDING = 0;
+    private static final int SETTING = 1;
+    private static final int DONE = 2;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile T value = null;
+    private volatile Throwable error = null;
+    private volatile boolean cancelled = false;
+    private List<HbaseFutureCallback<? super T>> callbacks = null;
+
+    public boolean set(T value) {
+        if (!state.compareAndSet(PENDING, SETTING)) {
+            return false;
+        }
+        this.value = value;
+        complete();
+        return true;
+    }
+
+    public boolean setException(Throwable error) {
+        if (!state.compareAndSet(PENDING, SETTING)) {
+            return false;
+        }
+        this.error = error;
+        complete();
+        return true;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!state.compareAndSet(PENDING, SETTING)) {
+            return false;
+        }
+        this.cancelled = true;
+        complete();
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return state.get() == DONE;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return report();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    /*
+     * 注册完成回调，已完成时在当前线程立即调用
+     */
+    public void addCallback(HbaseFutureCallback<? super T> callback) {
+        synchronized (this) {
+            if (state.get() != DONE) {
+                if (null == callbacks) {
+                    callbacks = new ArrayList<HbaseFutureCallback<? super T>>(2);
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+        invokeCallback(callback);
+    }
+
+    protected void complete() {
+        List<HbaseFutureCallback<? super T>> toNotify;
+        synchronized (this) {
+            state.set(DONE);
+            toNotify = callbacks;
+            callbacks = null;
+        }
+        latch.countDown();
+        if (null != toNotify) {
+            for (HbaseFutureCallback<? super T> callback : toNotify) {
+                invokeCallback(callback);
+            }
+        }
+    }
+
+    private void invokeCallback(HbaseFutureCallback<? super T> callback) {
+        try {
+            if (cancelled) {
+                callback.onFailure(new CancellationException());
+            } else if (null != error) {
+                callback.onFailure(error);
+            } else {
+                callback.onSuccess(value);
+            }
+        } catch (RuntimeException e) {
+            // 回调异常不影响其它回调
+        }
+    }
+
+    private T report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (null != error) {
+            throw new ExecutionException(error);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.TableName;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * 表名到TableName的缓存，避免每次请求都解析namespace和编码表名
+ * 表的个数有限，不做淘汰
+ */
+
+public final class HbaseTableNames {
+    private static final ConcurrentMap<String, TableName> TABLE_NAMES = new ConcurrentHashMap<String, TableName>();
+
+    private HbaseTableNames() { }
+
+    public static TableName valueOf(String tableName) {
+        TableName tabName = TABLE_NAMES.get(tableName);
+        if (null == tabName) {
+            tabName = TableName.valueOf(tableName);
+            TableName existing = TABLE_NAMES.putIfAbsent(tableName, tabName);
+            if (null != existing) {
+                tabName = existing;
+            }
+        }
+        return tabName;
+    }
+}
@@ -0,0 +1,90 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotEnabledException;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * 表启用状态缓存
+ * 读写前不再每次向master发isTableEnabled请求，状态过期(ttl)、建表删表或者数据请求返回
+ * 表不可用异常时才重新查询
+ */
+
+public class HbaseTableStateCache {
+    private static final Logger logger = LogManager.getLogger(HbaseTableStateCache.class);
+
+    private final ConcurrentMap<TableName, TableState> tableStates = new ConcurrentHashMap<TableName, TableState>();
+    // 缓存有效期，<=0表示不缓存
+    private final long ttlMillis;
+
+    public HbaseTableStateCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public boolean isTableEnabled(Connection connection, TableName tableName) throws IOException {
+        long now = System.currentTimeMillis();
+        TableState state = tableStates.get(tableName);
+        if (null != state && state.expireTime > now) {
+            return state.enabled;
+        }
+
+        boolean enabled;
+        Admin admin = connection.getAdmin();
+        try {
+            enabled = admin.isTableEnabled(tableName);
+        } finally {
+            admin.close();
+        }
+        if (ttlMillis > 0) {
+            tableStates.put(tableName, new TableState(enabled, now + ttlMillis));
+        }
+        return enabled;
+    }
+
+    public void invalidate(String tableName) {
+        invalidate(HbaseTableNames.valueOf(tableName));
+    }
+
+    public void invalidate(TableName tableName) {
+        if (null != tableStates.remove(tableName)) {
+            logger.debug("table state cache invalidated. table:" + tableName);
+        }
+    }
+
+    public void invalidateAll() {
+        tableStates.clear();
+    }
+
+    /*
+     * 数据请求异常时调用，如果是表不存在或者表未启用则失效该表的缓存状态
+     */
+    public void onException(String tableName, Throwable e) {
+        for (Throwable cause = e; null != cause; cause = cause.getCause()) {
+            if (cause instanceof TableNotEnabledException || cause instanceof TableNotFoundException) {
+                invalidate(tableName);
+                return;
+            }
+            if (cause == cause.getCause()) {
+                return;
+            }
+        }
+    }
+
+    private static class TableState {
+        final boolean enabled;
+        final long expireTime;
+
+        TableState(boolean enabled, long expireTime) {
+            this.enabled = enabled;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package hbase.tool;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 后台线程工厂，线程带名字前缀便于排查，且为守护线程，不阻止进程退出
+ */
+
+public class HbaseThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    public HbaseThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
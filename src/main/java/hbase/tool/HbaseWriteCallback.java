@@ -0,0 +1,17 @@
+package hbase.tool;
+
+import org.apache.hadoop.hbase.client.Mutation;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * 异步写入每一批数据完成后的回调
+ * 失败时如果异常是RetriesExhaustedWithDetailsException，可以从中取得具体失败的行
+ */
+
+public interface HbaseWriteCallback {
+    void onSuccess(String tableName, List<Mutation> mutations);
+
+    void onFailure(String tableName, List<Mutation> mutations, IOException e);
+}